@@ -0,0 +1,40 @@
+package com.hasandogan.courier_tracking.controller;
+
+import com.hasandogan.courier_tracking.model.ExportSummary;
+import com.hasandogan.courier_tracking.model.MemoryFootprint;
+import com.hasandogan.courier_tracking.service.CourierLocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final CourierLocationService courierLocationService;
+
+    @Autowired
+    public AdminController(CourierLocationService courierLocationService) {
+        this.courierLocationService = courierLocationService;
+    }
+
+    /**
+     * Walks every courier, so it runs off the request thread.
+     */
+    @GetMapping("/memory")
+    public Mono<ResponseEntity<MemoryFootprint>> getMemoryFootprint() {
+        return BlockingCalls.offEventLoop(() -> ResponseEntity.ok(courierLocationService.getMemoryFootprint()));
+    }
+
+    /**
+     * Writes a columnar export of all trajectories to {@code courier.export.directory}, e.g. for nightly jobs.
+     */
+    @PostMapping("/export")
+    public Mono<ResponseEntity<ExportSummary>> exportTrajectories() {
+        return BlockingCalls.offEventLoop(() -> ResponseEntity.ok(courierLocationService.exportTrajectories()));
+    }
+}
@@ -0,0 +1,21 @@
+package com.hasandogan.courier_tracking.controller;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs a blocking call on Reactor's bounded elastic scheduler. Controllers served by both web stacks return it
+ * for walks and disk I/O: on Netty the call stays off the event loop, on Tomcat the request completes
+ * asynchronously.
+ */
+final class BlockingCalls {
+
+    private BlockingCalls() {
+    }
+
+    static <T> Mono<T> offEventLoop(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
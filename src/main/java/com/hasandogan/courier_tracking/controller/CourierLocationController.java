@@ -1,42 +1,169 @@
 package com.hasandogan.courier_tracking.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.CourierKinematics;
 import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.DistanceWindow;
+import com.hasandogan.courier_tracking.model.IngestStats;
 import com.hasandogan.courier_tracking.service.CourierLocationService;
+import com.hasandogan.courier_tracking.service.IngestGate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 @RestController
 @RequestMapping("/api/couriers")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CourierLocationController {
 
+    private static final String CLIENT_ID_HEADER = "X-Client-Id";
+
     private final CourierLocationService courierLocationService;
+    private final IngestGate ingestGate;
+    private final ObjectMapper objectMapper;
+
+    private final RenderedBodyCache distanceBodies = new RenderedBodyCache();
+    private final RenderedBodyCache locationBodies = new RenderedBodyCache();
 
     @Autowired
-    public CourierLocationController(CourierLocationService courierLocationService) {
+    public CourierLocationController(CourierLocationService courierLocationService, IngestGate ingestGate,
+                                     ObjectMapper objectMapper) {
         this.courierLocationService = courierLocationService;
+        this.ingestGate = ingestGate;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/location")
-    public ResponseEntity<String> registerLocation(@RequestBody CourierLocation location) {
-        courierLocationService.processLocation(location);
-        return ResponseEntity.ok("Location processed successfully");
+    public ResponseEntity<String> registerLocation(@RequestBody CourierLocation location, HttpServletRequest request) {
+        String clientKey = ingestGate.clientKey(request.getHeader(CLIENT_ID_HEADER), request.getRemoteAddr());
+        switch (ingestGate.admit(clientKey, location)) {
+            case ACCEPTED:
+                try {
+                    courierLocationService.processLocation(location);
+                } finally {
+                    ingestGate.release();
+                }
+                return ResponseEntity.ok("Location processed successfully");
+            case COALESCED:
+                return ResponseEntity.accepted().body("Location accepted");
+            case RATE_LIMITED:
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body("Too many requests");
+            default:
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body("Service overloaded");
+        }
+    }
+
+    @GetMapping("/ingest/stats")
+    public ResponseEntity<IngestStats> getIngestStats() {
+        return ResponseEntity.ok(ingestGate.getStats());
+    }
+
+    @GetMapping("/{courierId}/kinematics")
+    public ResponseEntity<CourierKinematics> getCourierKinematics(@PathVariable String courierId) {
+        CourierKinematics kinematics = courierLocationService.getCourierKinematics(courierId);
+        return kinematics == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(kinematics);
     }
 
     @GetMapping("/{courierId}/distance")
-    public ResponseEntity<String> getTotalDistance(@PathVariable String courierId) {
-        String formattedDistance = courierLocationService.getTotalTravelDistanceOfCourier(courierId);
-        return ResponseEntity.ok(formattedDistance);
+    public ResponseEntity<String> getTotalDistance(@PathVariable String courierId, WebRequest webRequest) {
+        long version = courierLocationService.getCourierVersion(courierId);
+        String eTag = RenderedBodyCache.eTagOf(version);
+        if (webRequest.checkNotModified(eTag)) {
+            return null; // 304, the trajectory is not touched
+        }
+        String formattedDistance = distanceBodies.get(courierId, version,
+                () -> courierLocationService.getTotalTravelDistanceOfCourier(courierId));
+        return ResponseEntity.ok().eTag(eTag).body(formattedDistance);
+    }
+
+    /**
+     * Distance in meters between the first and the last ping of the courier within {@code [from, to]}.
+     */
+    @GetMapping("/{courierId}/distance/window")
+    public ResponseEntity<DistanceWindow> getDistanceBetween(
+            @PathVariable String courierId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+        DistanceWindow window = courierLocationService.getTravelDistanceBetween(courierId, from, to);
+        return window == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(window);
     }
 
     @GetMapping("/{courierId}/locations")
-    public ResponseEntity<?> getCourierLocations(@PathVariable String courierId) {
+    public ResponseEntity<String> getCourierLocations(@PathVariable String courierId, WebRequest webRequest) {
+        long version = courierLocationService.getCourierVersion(courierId);
+        String eTag = RenderedBodyCache.eTagOf(version);
+        if (webRequest.checkNotModified(eTag)) {
+            return null; // 304, the trajectory is not touched
+        }
+        String body = locationBodies.get(courierId, version, () -> renderLocations(courierId));
+        if (body == null) {
+            return ResponseEntity.ok().eTag(eTag).body("No locations found for courier " + courierId);
+        }
+        return ResponseEntity.ok().eTag(eTag).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private String renderLocations(String courierId) {
         List<CourierLocation> locations = courierLocationService.getCourierLocations(courierId);
         if (locations == null || locations.isEmpty()) {
-            return ResponseEntity.ok("No locations found for courier " + courierId);
+            return null;
         }
-        return ResponseEntity.ok(locations);
+        try {
+            return objectMapper.writeValueAsString(locations);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping(value = "/report", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getFleetReport() {
+        StreamingResponseBody body = outputStream -> courierLocationService.forEachCourierReport(
+                ForkJoinPool.commonPool(),
+                report -> {
+                    try {
+                        byte[] line = objectMapper.writeValueAsBytes(report);
+                        synchronized (outputStream) {
+                            outputStream.write(line);
+                            outputStream.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * All trajectories in the columnar binary format, encoded straight into the response.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTrajectories() {
+        StreamingResponseBody body = outputStream ->
+                courierLocationService.exportTrajectories(Channels.newChannel(outputStream));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"trajectories.ctrj\"")
+                .body(body);
     }
 }
@@ -0,0 +1,238 @@
+package com.hasandogan.courier_tracking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.CourierKinematics;
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.CourierReport;
+import com.hasandogan.courier_tracking.model.DistanceWindow;
+import com.hasandogan.courier_tracking.model.IngestStats;
+import com.hasandogan.courier_tracking.service.CourierLocationService;
+import com.hasandogan.courier_tracking.service.IngestGate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The courier API on Netty, active with the {@code reactive} profile in place of {@link CourierLocationController}.
+ * Request bodies are decoded without blocking, so an idle device connection holds no thread. Ingest, distance
+ * and rendering take locks and may wait, so they run on the bounded elastic scheduler rather than on the event
+ * loop. Admission, detection and rendering are the same {@link IngestGate} and {@link CourierLocationService}
+ * calls as in the servlet controller.
+ */
+@RestController
+@RequestMapping("/api/couriers")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCourierLocationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCourierLocationController.class);
+
+    private static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
+
+    private final CourierLocationService courierLocationService;
+    private final IngestGate ingestGate;
+    private final ObjectMapper objectMapper;
+
+    private final RenderedBodyCache distanceBodies = new RenderedBodyCache();
+    private final RenderedBodyCache locationBodies = new RenderedBodyCache();
+
+    @Autowired
+    public ReactiveCourierLocationController(CourierLocationService courierLocationService, IngestGate ingestGate,
+                                             ObjectMapper objectMapper) {
+        this.courierLocationService = courierLocationService;
+        this.ingestGate = ingestGate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping("/location")
+    public Mono<ResponseEntity<String>> registerLocation(@RequestBody Mono<CourierLocation> location,
+                                                         ServerWebExchange exchange) {
+        String clientKey = clientKey(exchange);
+        return location.publishOn(Schedulers.boundedElastic()).map(body -> {
+            switch (ingest(clientKey, body)) {
+                case ACCEPTED:
+                    return ResponseEntity.ok("Location processed successfully");
+                case COALESCED:
+                    return ResponseEntity.accepted().body("Location accepted");
+                case RATE_LIMITED:
+                    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                            .header(HttpHeaders.RETRY_AFTER, "1")
+                            .body("Too many requests");
+                default:
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "1")
+                            .body("Service overloaded");
+            }
+        });
+    }
+
+    /**
+     * Batch ingest for a stream of pings ({@code application/x-ndjson}, one location per line). Every ping is
+     * admitted on its own as it is decoded, and its admission is streamed back as one NDJSON line.
+     */
+    @PostMapping(value = "/locations", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<IngestGate.Admission> registerLocations(@RequestBody Flux<CourierLocation> locations,
+                                                        ServerWebExchange exchange) {
+        String clientKey = clientKey(exchange);
+        return locations.publishOn(Schedulers.boundedElastic()).map(location -> ingest(clientKey, location));
+    }
+
+    private IngestGate.Admission ingest(String clientKey, CourierLocation location) {
+        IngestGate.Admission admission = ingestGate.admit(clientKey, location);
+        if (admission == IngestGate.Admission.ACCEPTED) {
+            try {
+                courierLocationService.processLocation(location);
+            } finally {
+                ingestGate.release();
+            }
+        }
+        return admission;
+    }
+
+    private String clientKey(ServerWebExchange exchange) {
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return ingestGate.clientKey(exchange.getRequest().getHeaders().getFirst(CLIENT_ID_HEADER),
+                remoteAddress != null ? remoteAddress.getHostString() : null);
+    }
+
+    @GetMapping("/ingest/stats")
+    public ResponseEntity<IngestStats> getIngestStats() {
+        return ResponseEntity.ok(ingestGate.getStats());
+    }
+
+    @GetMapping("/{courierId}/kinematics")
+    public Mono<ResponseEntity<CourierKinematics>> getCourierKinematics(@PathVariable String courierId) {
+        return BlockingCalls.offEventLoop(() -> {
+            CourierKinematics kinematics = courierLocationService.getCourierKinematics(courierId);
+            return kinematics == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(kinematics);
+        });
+    }
+
+    @GetMapping("/{courierId}/distance")
+    public Mono<ResponseEntity<String>> getTotalDistance(@PathVariable String courierId, ServerWebExchange exchange) {
+        long version = courierLocationService.getCourierVersion(courierId);
+        String eTag = RenderedBodyCache.eTagOf(version);
+        if (exchange.checkNotModified(eTag)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build());
+        }
+        return BlockingCalls.offEventLoop(() -> {
+            String formattedDistance = distanceBodies.get(courierId, version,
+                    () -> courierLocationService.getTotalTravelDistanceOfCourier(courierId));
+            return ResponseEntity.ok().eTag(eTag).body(formattedDistance);
+        });
+    }
+
+    /**
+     * Distance in meters between the first and the last ping of the courier within {@code [from, to]}.
+     */
+    @GetMapping("/{courierId}/distance/window")
+    public Mono<ResponseEntity<DistanceWindow>> getDistanceBetween(
+            @PathVariable String courierId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (to.isBefore(from)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return BlockingCalls.offEventLoop(() -> {
+            DistanceWindow window = courierLocationService.getTravelDistanceBetween(courierId, from, to);
+            return window == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(window);
+        });
+    }
+
+    @GetMapping("/{courierId}/locations")
+    public Mono<ResponseEntity<String>> getCourierLocations(@PathVariable String courierId,
+                                                            ServerWebExchange exchange) {
+        long version = courierLocationService.getCourierVersion(courierId);
+        String eTag = RenderedBodyCache.eTagOf(version);
+        if (exchange.checkNotModified(eTag)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build());
+        }
+        return BlockingCalls.offEventLoop(() -> {
+            String body = locationBodies.get(courierId, version, () -> renderLocations(courierId));
+            if (body == null) {
+                return ResponseEntity.ok().eTag(eTag).body("No locations found for courier " + courierId);
+            }
+            return ResponseEntity.ok().eTag(eTag).contentType(MediaType.APPLICATION_JSON).body(body);
+        });
+    }
+
+    private String renderLocations(String courierId) {
+        List<CourierLocation> locations = courierLocationService.getCourierLocations(courierId);
+        if (locations == null || locations.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(locations);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping(value = "/report", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CourierReport> getFleetReport() {
+        // Reports are pushed from pool threads as they complete; the wait for the last one is kept off the event loop
+        return Flux.<CourierReport>create(sink -> {
+            try {
+                courierLocationService.forEachCourierReport(ForkJoinPool.commonPool(), sink::next);
+                sink.complete();
+            } catch (RuntimeException e) {
+                sink.error(e);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * All trajectories in the columnar binary format. The export is encoded on its own thread into a pipe that
+     * the response drains on the bounded elastic scheduler, so a slow client slows the encoder down instead of
+     * the export piling up in memory.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<Void> exportTrajectories(ServerHttpResponse response) {
+        response.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        response.getHeaders().set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"trajectories.ctrj\"");
+        return response.writeWith(DataBufferUtils.readInputStream(this::startExport, response.bufferFactory(),
+                EXPORT_BUFFER_BYTES).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private InputStream startExport() throws IOException {
+        PipedInputStream input = new PipedInputStream(EXPORT_BUFFER_BYTES);
+        PipedOutputStream output = new PipedOutputStream(input);
+        // A thread of its own: a pooled worker could end up queued behind the reader it waits for
+        Thread exporter = new Thread(() -> {
+            try (output) {
+                courierLocationService.exportTrajectories(Channels.newChannel(output));
+            } catch (IOException | RuntimeException e) {
+                // Closing the pipe ends the response early; the missing footer marks the file as incomplete
+                logger.warn("Trajectory export aborted: {}", e.getMessage());
+            }
+        }, "trajectory-export");
+        exporter.setDaemon(true);
+        exporter.start();
+        return input;
+    }
+}
@@ -0,0 +1,97 @@
+package com.hasandogan.courier_tracking.controller;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the last rendered response body per courier together with the courier version it was
+ * rendered for, so polling an unchanged courier does not recompute or re-serialize anything.
+ * The cache is bounded by entry count and total body length; when either is exceeded, arbitrary
+ * other couriers are dropped and simply re-rendered on their next poll.
+ */
+class RenderedBodyCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_MAX_CHARS = 16L * 1024 * 1024;
+
+    // Versions restart at every boot, the epoch keeps an old ETag from matching a new body
+    private static final String EPOCH = Long.toHexString(UUID.randomUUID().getMostSignificantBits());
+
+    private final Map<String, RenderedBody> bodies = new ConcurrentHashMap<>();
+    private final AtomicLong totalChars = new AtomicLong();
+    private final int maxEntries;
+    private final long maxChars;
+
+    RenderedBodyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_CHARS);
+    }
+
+    RenderedBodyCache(int maxEntries, long maxChars) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+    }
+
+    static String eTagOf(long version) {
+        return "\"" + EPOCH + "-" + version + "\"";
+    }
+
+    String get(String courierId, long version, Supplier<String> renderer) {
+        if (version == 0) {
+            // Unknown courier, nothing worth caching
+            return renderer.get();
+        }
+        RenderedBody cached = bodies.get(courierId);
+        if (cached != null && cached.version == version) {
+            return cached.body;
+        }
+        String body = renderer.get();
+        RenderedBody rendered = new RenderedBody(version, body);
+        if (rendered.chars() > maxChars) {
+            if (cached != null && bodies.remove(courierId, cached)) {
+                totalChars.addAndGet(-cached.chars());
+            }
+            return body;
+        }
+        RenderedBody previous = bodies.put(courierId, rendered);
+        totalChars.addAndGet(rendered.chars() - (previous == null ? 0 : previous.chars()));
+        evictBeyondBounds(courierId);
+        return body;
+    }
+
+    int size() {
+        return bodies.size();
+    }
+
+    long chars() {
+        return totalChars.get();
+    }
+
+    private void evictBeyondBounds(String keep) {
+        Iterator<Map.Entry<String, RenderedBody>> entries = bodies.entrySet().iterator();
+        while ((bodies.size() > maxEntries || totalChars.get() > maxChars) && entries.hasNext()) {
+            Map.Entry<String, RenderedBody> entry = entries.next();
+            if (!entry.getKey().equals(keep) && bodies.remove(entry.getKey(), entry.getValue())) {
+                totalChars.addAndGet(-entry.getValue().chars());
+            }
+        }
+    }
+
+    private static final class RenderedBody {
+
+        private final long version;
+        private final String body;
+
+        RenderedBody(long version, String body) {
+            this.version = version;
+            this.body = body;
+        }
+
+        long chars() {
+            return body == null ? 0 : body.length();
+        }
+    }
+}
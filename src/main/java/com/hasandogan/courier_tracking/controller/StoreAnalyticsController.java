@@ -0,0 +1,71 @@
+package com.hasandogan.courier_tracking.controller;
+
+import com.hasandogan.courier_tracking.model.DetectionShardStats;
+import com.hasandogan.courier_tracking.model.EntranceEvent;
+import com.hasandogan.courier_tracking.model.StoreDetectionStats;
+import com.hasandogan.courier_tracking.model.StoreVisitCount;
+import com.hasandogan.courier_tracking.model.VisitBucket;
+import com.hasandogan.courier_tracking.service.CourierLocationService;
+import com.hasandogan.courier_tracking.service.StoreVisitCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stores")
+public class StoreAnalyticsController {
+
+    private final CourierLocationService courierLocationService;
+
+    @Autowired
+    public StoreAnalyticsController(CourierLocationService courierLocationService) {
+        this.courierLocationService = courierLocationService;
+    }
+
+    @GetMapping("/visits/top")
+    public ResponseEntity<List<StoreVisitCount>> getTopVisitedStores(
+            @RequestParam(defaultValue = "HOUR") StoreVisitCounter.Granularity granularity,
+            @RequestParam(defaultValue = "24") int buckets,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (buckets < 1 || limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(courierLocationService.getTopVisitedStores(granularity, buckets, limit));
+    }
+
+    @GetMapping("/{storeName}/visits")
+    public ResponseEntity<List<VisitBucket>> getStoreVisitSeries(
+            @PathVariable String storeName,
+            @RequestParam(defaultValue = "HOUR") StoreVisitCounter.Granularity granularity,
+            @RequestParam(defaultValue = "24") int buckets) {
+        if (buckets < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(courierLocationService.getStoreVisitSeries(storeName, granularity, buckets));
+    }
+
+    @GetMapping("/detection/stats")
+    public ResponseEntity<StoreDetectionStats> getStoreDetectionStats() {
+        return ResponseEntity.ok(courierLocationService.getStoreDetectionStats());
+    }
+
+    @GetMapping("/detection/shards")
+    public ResponseEntity<List<DetectionShardStats>> getDetectionShardStats() {
+        return ResponseEntity.ok(courierLocationService.getDetectionShardStats());
+    }
+
+    /**
+     * Scans the event log segments on disk.
+     */
+    @GetMapping("/entrances")
+    public Mono<ResponseEntity<List<EntranceEvent>>> getEntranceEvents(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return BlockingCalls.offEventLoop(() -> ResponseEntity.ok(courierLocationService.getEntranceEvents(from, to)));
+    }
+}
@@ -0,0 +1,18 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourierKinematics {
+    private String courierId;
+    private double rawDistance; // meters, every stored point
+    private double filteredDistance; // meters, GPS jumps left out
+    private double currentSpeed; // m/s
+    private double averageSpeed; // m/s
+    private double maxSpeed; // m/s
+    private long rejectedJumps;
+}
@@ -0,0 +1,19 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourierReport {
+    private String courierId;
+    private double totalDistance; // meters
+    private int pointCount;
+    private LocalDateTime firstSeen;
+    private LocalDateTime lastSeen;
+    private long storeVisits;
+}
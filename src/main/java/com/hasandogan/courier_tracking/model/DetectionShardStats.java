@@ -0,0 +1,17 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DetectionShardStats {
+    private int shard;
+    private int cells;
+    private int couriers;
+    private long processedPings;
+    private long handoffs;
+    private int queuedPings;
+}
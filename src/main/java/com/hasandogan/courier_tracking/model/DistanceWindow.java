@@ -0,0 +1,18 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistanceWindow {
+    private String courierId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private double distance; // meters between the first and last ping in the window
+    private int pointCount;
+}
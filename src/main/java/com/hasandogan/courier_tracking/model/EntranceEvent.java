@@ -0,0 +1,16 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntranceEvent {
+    private String courierId;
+    private String storeName;
+    private LocalDateTime time;
+}
@@ -0,0 +1,16 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportSummary {
+    private String file;
+    private int couriers;
+    private long points;
+    private long bytes;
+    private long elapsedMillis;
+}
@@ -0,0 +1,20 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestStats {
+    private long accepted;
+    private long coalesced;
+    private long supersededDetections;
+    private long rateLimited;
+    private long overloaded;
+    private long rejectedDuplicates;
+    private long gpsJumps;
+    private int inFlight;
+    private int pendingDetections;
+}
@@ -0,0 +1,19 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemoryFootprint {
+    private int couriers;
+    private long points;
+    private long totalBytes;
+    private long bytesPerCourier; // fixed cost of a courier, without its points
+    private long bytesPerPoint;
+    private List<StructureFootprint> structures;
+}
@@ -0,0 +1,17 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplaySummary {
+    private long pings;
+    private long skippedLines;
+    private int couriers;
+    private long entrances;
+    private long elapsedMillis;
+    private double pingsPerSecond;
+}
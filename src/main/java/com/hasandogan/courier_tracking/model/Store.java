@@ -2,9 +2,16 @@ package com.hasandogan.courier_tracking.model;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class Store {
     private String name;
     private double lat;
     private double lng;
-}
\ No newline at end of file
+    private List<GeoPoint> polygon; // optional geofence, replaces the 100 m radius when present
+
+    public boolean hasPolygon() {
+        return polygon != null && polygon.size() >= 3;
+    }
+}
@@ -0,0 +1,16 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreDetectionStats {
+    private long checkedPings;
+    private long prefilterHits;
+    private long prefilterSkips;
+    private double hitRatio;
+    private double skipRatio;
+}
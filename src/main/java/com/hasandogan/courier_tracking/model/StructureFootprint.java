@@ -0,0 +1,14 @@
+package com.hasandogan.courier_tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StructureFootprint {
+    private String name;
+    private long entries;
+    private long bytes;
+}
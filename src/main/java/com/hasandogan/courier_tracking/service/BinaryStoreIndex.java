@@ -0,0 +1,269 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.util.LongHashSet;
+import com.hasandogan.courier_tracking.util.LongObjectHashMap;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Prebuilt store catalogue with its H3 cell index and prefilter, so startup maps a file instead of
+ * parsing {@code stores.json} and calling H3 for every store. Written by {@link StoreIndexCompiler}.
+ *
+ * <pre>
+ * header   int magic, int formatVersion, long sourceCrc, long sourceLength,
+ *          int resolution, int prefilterResolution,
+ *          int storeCount, int cellCount, int refCount, int prefilterCount, int namesLength
+ * stores   storeCount x (double lat, double lng, int nameOffset, int nameLength)
+ * names    namesLength bytes of UTF-8
+ * cells    cellCount x long, sorted
+ * offsets  (cellCount + 1) x int into refs
+ * refs     refCount x int store numbers
+ * prefilter prefilterCount x long, sorted
+ * </pre>
+ */
+public class BinaryStoreIndex {
+
+    static final int MAGIC = 0x43545349; // "CTSI"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 * 7;
+    private static final int STORE_BYTES = 8 + 8 + 4 + 4;
+
+    private final long sourceCrc;
+    private final long sourceLength;
+    private final int resolution;
+    private final int prefilterResolution;
+    private final List<Store> stores;
+    private final StoreCellIndex cellIndex;
+    private final StorePrefilter prefilter;
+
+    private BinaryStoreIndex(long sourceCrc, long sourceLength, int resolution, int prefilterResolution,
+                             List<Store> stores, StoreCellIndex cellIndex, StorePrefilter prefilter) {
+        this.sourceCrc = sourceCrc;
+        this.sourceLength = sourceLength;
+        this.resolution = resolution;
+        this.prefilterResolution = prefilterResolution;
+        this.stores = stores;
+        this.cellIndex = cellIndex;
+        this.prefilter = prefilter;
+    }
+
+    /**
+     * Maps the index file. A resource that is not a plain file (e.g. an entry of the Boot jar) cannot be
+     * mapped in place, so it is first copied to a temporary file, which is mapped and then deleted.
+     */
+    public static BinaryStoreIndex load(Resource resource) throws IOException {
+        if (resource.isFile()) {
+            return map(resource.getFile().toPath());
+        }
+        Path extracted = Files.createTempFile("stores", ".idx");
+        try {
+            try (InputStream inputStream = resource.getInputStream()) {
+                Files.copy(inputStream, extracted, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return map(extracted);
+        } finally {
+            try {
+                // The mapping stays valid after the file is unlinked
+                Files.delete(extracted);
+            } catch (IOException e) {
+                extracted.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static BinaryStoreIndex map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static BinaryStoreIndex read(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a binary store index");
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported binary store index version " + formatVersion);
+        }
+        long sourceCrc = buffer.getLong();
+        long sourceLength = buffer.getLong();
+        int resolution = buffer.getInt();
+        int prefilterResolution = buffer.getInt();
+        int storeCount = buffer.getInt();
+        int cellCount = buffer.getInt();
+        int refCount = buffer.getInt();
+        int prefilterCount = buffer.getInt();
+        int namesLength = buffer.getInt();
+
+        int storesStart = buffer.position();
+        int namesStart = storesStart + storeCount * STORE_BYTES;
+        byte[] names = new byte[namesLength];
+        buffer.position(namesStart);
+        buffer.get(names);
+
+        Store[] storeArray = new Store[storeCount];
+        buffer.position(storesStart);
+        for (int i = 0; i < storeCount; i++) {
+            Store store = new Store();
+            store.setLat(buffer.getDouble());
+            store.setLng(buffer.getDouble());
+            int nameOffset = buffer.getInt();
+            int nameLength = buffer.getInt();
+            store.setName(new String(names, nameOffset, nameLength, StandardCharsets.UTF_8));
+            storeArray[i] = store;
+        }
+
+        int cellsStart = namesStart + namesLength;
+        int offsetsStart = cellsStart + cellCount * 8;
+        int refsStart = offsetsStart + (cellCount + 1) * 4;
+        int prefilterStart = refsStart + refCount * 4;
+
+        LongObjectHashMap<Store[]> candidates = new LongObjectHashMap<>(cellCount);
+        for (int i = 0; i < cellCount; i++) {
+            long cell = buffer.getLong(cellsStart + i * 8);
+            int from = buffer.getInt(offsetsStart + i * 4);
+            int to = buffer.getInt(offsetsStart + (i + 1) * 4);
+            Store[] cellStores = new Store[to - from];
+            for (int r = from; r < to; r++) {
+                cellStores[r - from] = storeArray[buffer.getInt(refsStart + r * 4)];
+            }
+            candidates.put(cell, cellStores);
+        }
+
+        LongHashSet coarseCells = new LongHashSet(prefilterCount);
+        for (int i = 0; i < prefilterCount; i++) {
+            coarseCells.add(buffer.getLong(prefilterStart + i * 8));
+        }
+
+        return new BinaryStoreIndex(sourceCrc, sourceLength, resolution, prefilterResolution,
+                Arrays.asList(storeArray), new StoreCellIndex(candidates),
+                new StorePrefilter(coarseCells, prefilterResolution));
+    }
+
+    static void write(Path target, byte[] source, List<Store> stores, StoreCellIndex cellIndex,
+                      StorePrefilter prefilter, int resolution) throws IOException {
+        Map<Store, Integer> storeNumbers = new IdentityHashMap<>();
+        List<byte[]> nameBytes = new ArrayList<>(stores.size());
+        int namesLength = 0;
+        for (Store store : stores) {
+            storeNumbers.put(store, storeNumbers.size());
+            byte[] name = store.getName().getBytes(StandardCharsets.UTF_8);
+            nameBytes.add(name);
+            namesLength += name.length;
+        }
+
+        List<Long> cellList = new ArrayList<>(cellIndex.size());
+        cellIndex.forEachCell(cellList::add);
+        long[] cells = cellList.stream().mapToLong(Long::longValue).sorted().toArray();
+        int refCount = 0;
+        for (long cell : cells) {
+            refCount += cellIndex.getCandidates(cell).length;
+        }
+        List<Long> coarseList = new ArrayList<>(prefilter.size());
+        prefilter.forEachCell(coarseList::add);
+        long[] coarseCells = coarseList.stream().mapToLong(Long::longValue).sorted().toArray();
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + stores.size() * STORE_BYTES + namesLength
+                + cells.length * 8 + (cells.length + 1) * 4 + refCount * 4 + coarseCells.length * 8);
+        CRC32 crc = new CRC32();
+        crc.update(source);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(crc.getValue())
+                .putLong(source.length)
+                .putInt(resolution)
+                .putInt(prefilter.getResolution())
+                .putInt(stores.size())
+                .putInt(cells.length)
+                .putInt(refCount)
+                .putInt(coarseCells.length)
+                .putInt(namesLength);
+
+        int nameOffset = 0;
+        for (int i = 0; i < stores.size(); i++) {
+            Store store = stores.get(i);
+            buffer.putDouble(store.getLat()).putDouble(store.getLng()).putInt(nameOffset).putInt(nameBytes.get(i).length);
+            nameOffset += nameBytes.get(i).length;
+        }
+        for (byte[] name : nameBytes) {
+            buffer.put(name);
+        }
+        for (long cell : cells) {
+            buffer.putLong(cell);
+        }
+        int offset = 0;
+        for (long cell : cells) {
+            buffer.putInt(offset);
+            offset += cellIndex.getCandidates(cell).length;
+        }
+        buffer.putInt(offset);
+        for (long cell : cells) {
+            for (Store store : cellIndex.getCandidates(cell)) {
+                buffer.putInt(storeNumbers.get(store));
+            }
+        }
+        for (long coarseCell : coarseCells) {
+            buffer.putLong(coarseCell);
+        }
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        try (OutputStream outputStream = Files.newOutputStream(target)) {
+            outputStream.write(buffer.array());
+        }
+    }
+
+    /**
+     * True if the index was compiled from exactly these {@code stores.json} bytes.
+     */
+    public boolean isCompiledFrom(Resource source) throws IOException {
+        CRC32 crc = new CRC32();
+        long length = 0;
+        try (InputStream inputStream = source.getInputStream()) {
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                crc.update(chunk, 0, read);
+                length += read;
+            }
+        }
+        return length == sourceLength && crc.getValue() == sourceCrc;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public int getPrefilterResolution() {
+        return prefilterResolution;
+    }
+
+    public List<Store> getStores() {
+        return stores;
+    }
+
+    public StoreCellIndex getCellIndex() {
+        return cellIndex;
+    }
+
+    public StorePrefilter getPrefilter() {
+        return prefilter;
+    }
+}
@@ -0,0 +1,261 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.EntranceEvent;
+import com.hasandogan.courier_tracking.model.ReplaySummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Offline backfill from a history file of pings, either NDJSON ({@link CourierLocation} per line) or CSV
+ * ({@code time,courierId,latitude,longitude}). The file is memory-mapped and split into chunks on line
+ * boundaries that are parsed in parallel. Pings are then grouped by courier, sorted by time and replayed
+ * courier by courier through a detached {@link CourierLocationService}, so distances, deduplication and
+ * store detection follow exactly the live rules without touching live state. The detached service keeps
+ * running totals instead of the trajectories and each courier's pings are dropped once replayed, so the
+ * parsed history is the only full copy of the data on the heap.
+ *
+ * <p>Writes {@code couriers.ndjson} (one {@code CourierReport} per courier) and {@code entrances.ndjson}
+ * (entrance events ordered by courier and time) to the output directory.
+ */
+public class BulkReplay {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkReplay.class);
+
+    private static final long MAX_CHUNK_BYTES = 256L * 1024 * 1024;
+
+    private final CourierLocationService template;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool pool;
+    private final int minChunks;
+
+    public BulkReplay(CourierLocationService template, ObjectMapper objectMapper, ForkJoinPool pool) {
+        this(template, objectMapper, pool, pool.getParallelism() * 4);
+    }
+
+    BulkReplay(CourierLocationService template, ObjectMapper objectMapper, ForkJoinPool pool, int minChunks) {
+        this.template = template;
+        this.objectMapper = objectMapper;
+        this.pool = pool;
+        this.minChunks = minChunks;
+    }
+
+    public ReplaySummary replay(Path input, Path outputDirectory) throws IOException {
+        long start = System.nanoTime();
+        boolean csv = input.getFileName().toString().toLowerCase().endsWith(".csv");
+        LongAdder skippedLines = new LongAdder();
+
+        Map<String, List<CourierLocation>> byCourier = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitOnLines(channel);
+            List<Map<String, List<CourierLocation>>> parsed = inPool(() -> chunks.parallelStream()
+                    .map(chunk -> parseChunk(channel, chunk[0], chunk[1], csv, skippedLines))
+                    .collect(Collectors.toList()));
+            // Chunks are merged in file order, so equal timestamps keep their order after the stable sort
+            for (Map<String, List<CourierLocation>> chunk : parsed) {
+                chunk.forEach((courierId, locations) ->
+                        byCourier.computeIfAbsent(courierId, k -> new ArrayList<>()).addAll(locations));
+            }
+        }
+
+        long pings = byCourier.values().stream().mapToLong(List::size).sum();
+        int couriers = byCourier.size();
+        List<List<CourierLocation>> histories = new ArrayList<>(byCourier.values());
+        byCourier.clear();
+
+        ConcurrentLinkedQueue<EntranceEvent> entrances = new ConcurrentLinkedQueue<>();
+        CourierLocationService replayService = template.detachedCopy(entrances::add);
+        // Each courier is replayed on one thread in time order; couriers run in parallel. The copy keeps only
+        // running totals, so a courier's pings are released as soon as it has been replayed
+        inPool(() -> {
+            IntStream.range(0, histories.size()).parallel().forEach(i -> {
+                List<CourierLocation> locations = histories.get(i);
+                locations.sort(Comparator.comparing(CourierLocation::getTime));
+                for (CourierLocation location : locations) {
+                    replayService.processLocation(location);
+                }
+                histories.set(i, null);
+            });
+            return null;
+        });
+
+        Files.createDirectories(outputDirectory);
+        writeReports(replayService, outputDirectory.resolve("couriers.ndjson"));
+        writeEntrances(entrances, outputDirectory.resolve("entrances.ndjson"));
+
+        long elapsedNanos = System.nanoTime() - start;
+        ReplaySummary summary = new ReplaySummary(pings, skippedLines.sum(), couriers, entrances.size(),
+                elapsedNanos / 1_000_000, elapsedNanos == 0 ? 0.0 : pings * 1e9 / elapsedNanos);
+        logger.info("Replayed {} pings of {} couriers from {} in {} ms ({} pings/s), {} entrances, {} lines skipped",
+                summary.getPings(), summary.getCouriers(), input, summary.getElapsedMillis(),
+                Math.round(summary.getPingsPerSecond()), summary.getEntrances(), summary.getSkippedLines());
+        return summary;
+    }
+
+    // Chunk boundaries land right after a newline, so no line is split between two chunks
+    private List<long[]> splitOnLines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunkCount = (int) Math.max(minChunks, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        List<long[]> chunks = new ArrayList<>(chunkCount);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long chunkStart = 0;
+        for (int i = 1; i <= chunkCount && chunkStart < size; i++) {
+            long chunkEnd = i == chunkCount ? size : Math.max(chunkStart, size / chunkCount * i);
+            while (chunkEnd < size) {
+                probe.clear();
+                int read = channel.read(probe, chunkEnd);
+                int newline = -1;
+                for (int b = 0; b < read; b++) {
+                    if (probe.get(b) == '\n') {
+                        newline = b;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    chunkEnd += newline + 1;
+                    break;
+                }
+                chunkEnd += read;
+            }
+            if (chunkEnd - chunkStart > Integer.MAX_VALUE) {
+                throw new IOException("Line longer than 2 GB near offset " + chunkStart);
+            }
+            if (chunkEnd > chunkStart) {
+                chunks.add(new long[] {chunkStart, chunkEnd});
+            }
+            chunkStart = chunkEnd;
+        }
+        return chunks;
+    }
+
+    private Map<String, List<CourierLocation>> parseChunk(FileChannel channel, long start, long end, boolean csv,
+                                                          LongAdder skippedLines) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, List<CourierLocation>> byCourier = new HashMap<>();
+        byte[] line = new byte[256];
+        int length = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i <= limit; i++) {
+            byte b = i < limit ? buffer.get(i) : (byte) '\n';
+            if (b != '\n') {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+                continue;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                CourierLocation location = csv ? parseCsv(line, length) : parseJson(line, length);
+                if (location == null || location.getCourierId() == null || location.getTime() == null) {
+                    skippedLines.increment();
+                } else {
+                    byCourier.computeIfAbsent(location.getCourierId(), k -> new ArrayList<>()).add(location);
+                }
+            }
+            length = 0;
+        }
+        return byCourier;
+    }
+
+    private CourierLocation parseJson(byte[] line, int length) {
+        try {
+            return objectMapper.readValue(line, 0, length, CourierLocation.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // time,courierId,latitude,longitude; a header line fails to parse and is skipped
+    private static CourierLocation parseCsv(byte[] line, int length) {
+        String[] fields = new String(line, 0, length, StandardCharsets.UTF_8).split(",", -1);
+        if (fields.length != 4) {
+            return null;
+        }
+        try {
+            return new CourierLocation(LocalDateTime.parse(fields[0].trim()), fields[1].trim(),
+                    Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeReports(CourierLocationService replayService, Path file) throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            replayService.forEachCourierReport(pool, report -> {
+                try {
+                    byte[] bytes = objectMapper.writeValueAsBytes(report);
+                    synchronized (outputStream) {
+                        outputStream.write(bytes);
+                        outputStream.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void writeEntrances(ConcurrentLinkedQueue<EntranceEvent> entrances, Path file) throws IOException {
+        List<EntranceEvent> ordered = new ArrayList<>(entrances);
+        ordered.sort(Comparator.comparing(EntranceEvent::getCourierId).thenComparing(EntranceEvent::getTime));
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            for (EntranceEvent event : ordered) {
+                outputStream.write(objectMapper.writeValueAsBytes(event));
+                outputStream.write('\n');
+            }
+        }
+    }
+
+    private <T> T inPool(Callable<T> task) throws IOException {
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Replay interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Replay failed", e.getCause());
+        }
+    }
+}
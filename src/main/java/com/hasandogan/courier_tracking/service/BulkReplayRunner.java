@@ -0,0 +1,44 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a {@link BulkReplay} at startup when {@code courier.replay.input} is set, e.g.
+ * {@code java -jar courier-tracking.jar --spring.main.web-application-type=none --courier.replay.input=history.ndjson}.
+ * Without a web server the application exits once the replay is written.
+ */
+@Component
+@ConditionalOnProperty(name = "courier.replay.input")
+public class BulkReplayRunner implements ApplicationRunner {
+
+    private final CourierLocationService courierLocationService;
+    private final ObjectMapper objectMapper;
+    private final String input;
+    private final String outputDirectory;
+
+    @Autowired
+    public BulkReplayRunner(CourierLocationService courierLocationService, ObjectMapper objectMapper,
+                            @Value("${courier.replay.input}") String input,
+                            @Value("${courier.replay.output:data/replay}") String outputDirectory) {
+        this.courierLocationService = courierLocationService;
+        this.objectMapper = objectMapper;
+        this.input = input;
+        this.outputDirectory = outputDirectory;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        new BulkReplay(courierLocationService, objectMapper, ForkJoinPool.commonPool())
+                .replay(Paths.get(input), Paths.get(outputDirectory));
+    }
+}
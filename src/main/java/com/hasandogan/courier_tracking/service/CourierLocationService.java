@@ -1,51 +1,144 @@
 package com.hasandogan.courier_tracking.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.CourierKinematics;
 import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.CourierReport;
+import com.hasandogan.courier_tracking.model.DetectionShardStats;
+import com.hasandogan.courier_tracking.model.DistanceWindow;
+import com.hasandogan.courier_tracking.model.EntranceEvent;
+import com.hasandogan.courier_tracking.model.ExportSummary;
+import com.hasandogan.courier_tracking.model.MemoryFootprint;
 import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.model.StoreDetectionStats;
+import com.hasandogan.courier_tracking.model.StoreVisitCount;
+import com.hasandogan.courier_tracking.model.StructureFootprint;
+import com.hasandogan.courier_tracking.model.VisitBucket;
 import com.hasandogan.courier_tracking.util.DistanceCalculator;
 import com.uber.h3core.H3Core;
-import com.uber.h3core.util.LatLng;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 @Service
 public class CourierLocationService {
 
     private static final Logger logger = LoggerFactory.getLogger(CourierLocationService.class);
 
+    static final int H3_RESOLUTION = 11;
+    static final int PREFILTER_RESOLUTION = 7;
+
+    private static final DateTimeFormatter EXPORT_FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
     private final List<Store> stores = new ArrayList<>();
-    private final Map<String, List<CourierLocation>> courierLocations = new HashMap<>();
-    private final Map<String, Map<String, LocalDateTime>> lastEntranceTime = new HashMap<>(); // courierId -> storeName -> lastTime
+    private final Map<String, List<CourierLocation>> courierLocations = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LocalDateTime>> lastEntranceTime = new ConcurrentHashMap<>(); // courierId -> storeName -> lastTime
+    private final Map<String, LongAdder> courierStoreVisits = new ConcurrentHashMap<>();
+    private final Map<String, CourierState> courierStates = new ConcurrentHashMap<>();
+    // In place of courierLocations when trajectories are not stored
+    private final Map<String, TrajectorySummary> courierSummaries = new ConcurrentHashMap<>();
 
     @Value("classpath:stores.json")
     private org.springframework.core.io.Resource storesJsonFile;
 
+    // Written by StoreIndexCompiler at build time; ignored unless it was compiled from the current stores.json
+    @Value("${courier.stores.binary-index:classpath:stores.idx}")
+    private String storesBinaryIndexLocation;
+
+    // Loads the H3 native library in the background instead of blocking startup
+    @Value("${courier.startup.defer-h3-init:true}")
+    private boolean deferH3Initialization;
+
+    // Number of region shards running store detection on their own threads; 0 detects on the calling thread
+    @Value("${courier.sharding.shards:0}")
+    private int detectionShards;
+
+    // Where POST /api/admin/export writes its files
+    @Value("${courier.export.directory:data/export}")
+    private String exportDirectory = "data/export";
+
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private H3Core h3Core;
+    private volatile H3Core h3Core;
+    private volatile CompletableFuture<Void> h3Ready;
+    private boolean binaryIndexLoaded;
+
+    @Autowired(required = false)
+    private EntranceEventSink entranceEventSink;
+
+    // Only set on detached copies, which report entrances to the caller instead of the sink
+    private Consumer<EntranceEvent> entranceListener;
+
+    // Off on replay copies: pings are not kept, reports come from running totals
+    private boolean storeTrajectories = true;
 
     private final DistanceCalculator distanceCalculator = new DistanceCalculator();
 
+    private final StoreVisitCounter storeVisitCounter = new StoreVisitCounter();
+
+    private volatile StoreCellIndex storeCellIndex;
+    private volatile StoreGeofenceIndex geofenceIndex;
+    private volatile StorePrefilter storePrefilter;
+    private volatile ShardedStoreDetector shardedDetector;
+
+    private final LongAdder prefilterHits = new LongAdder();
+    private final LongAdder prefilterSkips = new LongAdder();
+    private final LongAdder rejectedDuplicates = new LongAdder();
+    private final LongAdder gpsJumps = new LongAdder();
+
+    // Faster than this between two pings is a GPS jump; the field default applies outside Spring
+    @Value("${courier.kinematics.max-speed-mps:55}")
+    private double maxSpeedMetersPerSecond = 55;
+
 
     @PostConstruct
     public void initializeH3() {
+        if (deferH3Initialization) {
+            h3Ready = CompletableFuture.runAsync(this::loadH3Core, runnable -> {
+                Thread thread = new Thread(runnable, "h3-init");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        } else {
+            loadH3Core();
+        }
+    }
+
+    private void loadH3Core() {
         try {
             logger.info("Attempting to initialize H3Core...");
             h3Core = H3Core.newInstance();
             logger.info("H3Core initialized successfully.");
+            indexStores();
         } catch (IOException e) {
             logger.error("Error initializing H3Core using default loader: {}", e.getMessage());
             try {
                 logger.info("Attempting to initialize H3Core with system loader...");
                 h3Core = H3Core.newSystemInstance();
                 logger.info("H3Core initialized successfully using system loader.");
+                indexStores();
             } catch (Exception ex) {
                 logger.error("Error initializing H3Core using system loader as well: {}", ex.getMessage());
                 logger.error("Please ensure the native H3 library is available on your system.");
@@ -55,78 +148,365 @@ public class CourierLocationService {
 
     @PostConstruct
     public void loadStores() {
+        if (loadBinaryIndex()) {
+            // Nothing left to index, but the detection shards still start here when H3 was loaded first
+            indexStores();
+            return;
+        }
         try {
             Store[] storeArray = objectMapper.readValue(storesJsonFile.getInputStream(), Store[].class);
-            stores.addAll(Arrays.asList(storeArray));
+            synchronized (this) {
+                stores.addAll(Arrays.asList(storeArray));
+            }
             logger.info("Loaded {} stores from stores.json", stores.size());
+            indexStores();
         } catch (IOException e) {
             logger.error("Error loading stores from stores.json: {}", e.getMessage());
         }
     }
 
+    // Maps the prebuilt index, so neither JSON parsing nor H3 is needed to have the stores indexed
+    private boolean loadBinaryIndex() {
+        if (storesBinaryIndexLocation == null || storesBinaryIndexLocation.isEmpty()) {
+            return false;
+        }
+        org.springframework.core.io.Resource resource = new DefaultResourceLoader().getResource(storesBinaryIndexLocation);
+        if (!resource.exists()) {
+            return false;
+        }
+        try {
+            BinaryStoreIndex index = BinaryStoreIndex.load(resource);
+            if (index.getResolution() != H3_RESOLUTION || index.getPrefilterResolution() != PREFILTER_RESOLUTION
+                    || !index.isCompiledFrom(storesJsonFile)) {
+                logger.warn("Binary store index {} is stale, indexing stores.json instead", storesBinaryIndexLocation);
+                return false;
+            }
+            synchronized (this) {
+                stores.addAll(index.getStores());
+                storeCellIndex = index.getCellIndex();
+                storePrefilter = index.getPrefilter();
+                binaryIndexLoaded = true;
+            }
+            logger.info("Loaded {} stores and {} H3 cells from {}", stores.size(), storeCellIndex.size(), storesBinaryIndexLocation);
+            return true;
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            logger.warn("Error loading binary store index {}: {}", storesBinaryIndexLocation, e.getMessage());
+            return false;
+        }
+    }
+
+    // Both H3 and the store list are needed; whichever @PostConstruct runs last builds the indexes
+    synchronized void indexStores() {
+        if (h3Core == null || stores.isEmpty()) {
+            return;
+        }
+        try {
+            // Already indexed at build time when loaded from the binary index
+            if (!binaryIndexLoaded) {
+                storeCellIndex = StoreCellIndex.build(h3Core, stores, H3_RESOLUTION);
+                logger.info("Indexed {} H3 cells around point stores", storeCellIndex.size());
+                if (stores.stream().anyMatch(Store::hasPolygon)) {
+                    geofenceIndex = StoreGeofenceIndex.build(h3Core, stores, H3_RESOLUTION);
+                    logger.info("Indexed polygon geofences of {} stores", stores.stream().filter(Store::hasPolygon).count());
+                }
+                storePrefilter = StorePrefilter.build(h3Core, stores, geofenceIndex, PREFILTER_RESOLUTION);
+                logger.info("Store prefilter covers {} resolution-{} cells", storePrefilter.size(), PREFILTER_RESOLUTION);
+                for (CourierState state : courierStates.values()) {
+                    synchronized (state) {
+                        state.lastCell = CourierState.NO_CELL;
+                    }
+                }
+            }
+            if (detectionShards > 0) {
+                ShardedStoreDetector previous = shardedDetector;
+                shardedDetector = ShardedStoreDetector.start(h3Core, storeCellIndex, geofenceIndex,
+                        detectionShards, this::matchStores);
+                if (previous != null) {
+                    previous.stop();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            logger.error("Error indexing stores: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stopDetectionShards() {
+        ShardedStoreDetector detector = shardedDetector;
+        if (detector != null) {
+            detector.stop();
+        }
+    }
+
+    /**
+     * A service sharing this one's stores and indexes but none of its courier state, for offline replays.
+     * Entrances it detects go to the listener only; detection runs on the calling thread even if this
+     * service is sharded. The copy does not store trajectories: fleet reports come from running totals,
+     * while the per-courier queries that need the stored points find nothing.
+     */
+    CourierLocationService detachedCopy(Consumer<EntranceEvent> entranceListener) {
+        CourierLocationService copy = new CourierLocationService();
+        // Outside the monitor: the H3 loader thread takes it to index the stores
+        copy.h3Core = awaitH3Core();
+        synchronized (this) {
+            copy.stores.addAll(stores);
+            copy.storeCellIndex = storeCellIndex;
+            copy.geofenceIndex = geofenceIndex;
+            copy.storePrefilter = storePrefilter;
+        }
+        copy.entranceListener = entranceListener;
+        copy.storeTrajectories = false;
+        // Replays judge GPS jumps by the configured limit, not the field default
+        copy.maxSpeedMetersPerSecond = maxSpeedMetersPerSecond;
+        return copy;
+    }
+
     public void processLocation(CourierLocation location) {
+        if (recordLocation(location)) {
+            checkIfEnteredStore(location);
+        }
+    }
+
+    /**
+     * Distance accounting only: appends the point to the courier's trajectory without store detection.
+     * Returns false if there is nothing to detect for the point: it is a resend of a recent ping of the
+     * courier and was dropped, or it was stored but marked as a GPS jump.
+     */
+    public boolean recordLocation(CourierLocation location) {
         String courierId = location.getCourierId();
-        courierLocations.computeIfAbsent(courierId, k -> new ArrayList<>()).add(location);
+        CourierState state = courierStates.computeIfAbsent(courierId, k -> new CourierState());
+        boolean timed = location.getTime() != null;
+        long timeNanos = timed ? toEpochNanos(location.getTime()) : 0L;
+        boolean plausible;
+        synchronized (state) {
+            if (timed && !state.registerPing(timeNanos, pingHash(location))) {
+                rejectedDuplicates.increment();
+                logger.debug("Dropped duplicate ping of courier {} at {}", courierId, location.getTime());
+                return false;
+            }
+            plausible = state.kinematics.update(timed, timeNanos, location.getLatitude(), location.getLongitude(),
+                    maxSpeedMetersPerSecond);
+            if (timed && storeTrajectories) {
+                state.cumulative.add(timeNanos, location.getLatitude(), location.getLongitude());
+            }
+        }
+        if (storeTrajectories) {
+            List<CourierLocation> locations = courierLocations.computeIfAbsent(courierId, k -> new ArrayList<>());
+            synchronized (locations) {
+                locations.add(location);
+            }
+        } else {
+            courierSummaries.computeIfAbsent(courierId, k -> new TrajectorySummary())
+                    .add(location.getLatitude(), location.getLongitude(), location.getTime(), distanceCalculator);
+        }
+        state.version.incrementAndGet();
+        if (!plausible) {
+            gpsJumps.increment();
+            logger.debug("Marked ping of courier {} at {} as a GPS jump", courierId, location.getTime());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Speeds and raw vs jump-filtered distance of the courier, or null for unknown couriers.
+     */
+    public CourierKinematics getCourierKinematics(String courierId) {
+        CourierState state = courierStates.get(courierId);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            KinematicTrack track = state.kinematics;
+            return new CourierKinematics(courierId, track.rawDistance, track.filteredDistance, track.currentSpeed,
+                    track.averageSpeed(), track.maxSpeed, track.rejectedJumps);
+        }
+    }
+
+    /**
+     * Meters travelled by the courier between the first and the last of its pings within {@code [from, to]},
+     * in time order. Two binary searches over the courier's prefix sums, O(log n). Null for unknown couriers.
+     */
+    public DistanceWindow getTravelDistanceBetween(String courierId, LocalDateTime from, LocalDateTime to) {
+        CourierState state = courierStates.get(courierId);
+        if (state == null) {
+            return null;
+        }
+        long fromNanos = toEpochNanos(from);
+        long toNanos = toEpochNanos(to);
+        synchronized (state) {
+            return new DistanceWindow(courierId, from, to, state.cumulative.distanceBetween(fromNanos, toNanos),
+                    state.cumulative.countBetween(fromNanos, toNanos));
+        }
+    }
+
+    /**
+     * Monotonically increasing version of the courier's trajectory, 0 for unknown couriers.
+     */
+    public long getCourierVersion(String courierId) {
+        CourierState state = courierStates.get(courierId);
+        return state == null ? 0 : state.version.get();
+    }
+
+    private static long toEpochNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    private static long pingHash(CourierLocation location) {
+        long hash = toEpochNanos(location.getTime());
+        hash = 31 * hash + Double.doubleToLongBits(location.getLatitude());
+        hash = 31 * hash + Double.doubleToLongBits(location.getLongitude());
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public long getRejectedDuplicates() {
+        return rejectedDuplicates.sum();
+    }
+
+    public long getGpsJumps() {
+        return gpsJumps.sum();
+    }
+
+    /**
+     * Store detection only, for a point that was already recorded with {@link #recordLocation}.
+     */
+    public void detectStoreEntrance(CourierLocation location) {
         checkIfEnteredStore(location);
     }
 
     private void checkIfEnteredStore(CourierLocation location) {
-        if (h3Core == null) {
+        H3Core h3Core = awaitH3Core();
+        StoreCellIndex cellIndex = storeCellIndex;
+        StorePrefilter prefilter = storePrefilter;
+        if (h3Core == null || cellIndex == null || prefilter == null) {
             logger.warn("H3Core not initialized. Cannot check store entrances.");
             return;
         }
 
-        LatLng courierLatLng = new LatLng(location.getLatitude(), location.getLongitude());
-
+        double latitude = location.getLatitude();
+        double longitude = location.getLongitude();
+        long courierCell;
         try {
-            int h3_RESOLUTION = 11;
-            String courierH3Index = h3Core.latLngToCellAddress(courierLatLng.lat, courierLatLng.lng, h3_RESOLUTION);
-
-            for (Store store : stores) {
-                LatLng storeLatLng = new LatLng(store.getLat(), store.getLng());
-                String storeH3Index = h3Core.latLngToCellAddress(storeLatLng.lat, storeLatLng.lng, h3_RESOLUTION);
-
-                if (courierH3Index.equals(storeH3Index)) {
-                    double distance = distanceCalculator.calculateDistance(
-                            location.getLatitude(), location.getLongitude(),
-                            store.getLat(), store.getLng()
-                    );
-                    if (distance <= 100) {
-                        logEntrance(location.getCourierId(), store.getName(), location.getTime());
-                    }
-                } else {
-                    Set<String> neighbors = new HashSet<>(h3Core.gridDisk(storeH3Index, 1));
-                    if (neighbors.contains(courierH3Index)) {
-                        double distance = distanceCalculator.calculateDistance(
-                                location.getLatitude(), location.getLongitude(),
-                                store.getLat(), store.getLng()
-                        );
-                        if (distance <= 100) {
-                            logEntrance(location.getCourierId(), store.getName(), location.getTime());
-                        }
-                    }
-                }
+            if (!prefilter.mayBeNearStore(h3Core.latLngToCell(latitude, longitude, PREFILTER_RESOLUTION))) {
+                prefilterSkips.increment();
+                return;
             }
+            prefilterHits.increment();
+            courierCell = h3Core.latLngToCell(latitude, longitude, H3_RESOLUTION);
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid coordinates for H3 conversion: {}", e.getMessage());
+            return;
+        }
+
+        ShardedStoreDetector detector = shardedDetector;
+        while (detector != null) {
+            if (detector.submit(location, courierCell)) {
+                return;
+            }
+            // Stopped by a re-index; its replacement is published before the old detector stops
+            ShardedStoreDetector current = shardedDetector;
+            detector = current == detector ? null : current;
+        }
+
+        StoreGeofenceIndex geofences = geofenceIndex;
+        CourierState state = courierStates.computeIfAbsent(location.getCourierId(), k -> new CourierState());
+        Store[] candidates;
+        synchronized (state) {
+            if (courierCell != state.lastCell) {
+                state.lastCell = courierCell;
+                state.lastCandidates = cellIndex.getCandidates(courierCell);
+                state.lastCellNearStore = state.lastCandidates.length > 0
+                        || (geofences != null && geofences.covers(courierCell));
+            }
+            if (!state.lastCellNearStore) {
+                return; // still in a cell that is not near any store
+            }
+            candidates = state.lastCandidates;
+        }
+        matchStores(location, courierCell, candidates);
+    }
+
+    private void matchStores(CourierLocation location, long courierCell, Store[] candidates) {
+        matchStores(location, courierCell, candidates, null);
+    }
+
+    // Distance check against the candidate point stores and exact test against nearby polygons. On a detection
+    // shard the courier's cache drops repeated pings inside a store before they reach the shared entrance times
+    private void matchStores(CourierLocation location, long courierCell, Store[] candidates,
+                             ShardedStoreDetector.DetectionCache cache) {
+        double latitude = location.getLatitude();
+        double longitude = location.getLongitude();
+        for (Store store : candidates) {
+            double distance = distanceCalculator.calculateDistance(latitude, longitude, store.getLat(), store.getLng());
+            if (distance <= 100) {
+                enterStore(location, store.getName(), cache);
+            }
+        }
+        StoreGeofenceIndex geofences = geofenceIndex;
+        if (geofences != null) {
+            for (Store store : geofences.findContaining(courierCell, latitude, longitude)) {
+                enterStore(location, store.getName(), cache);
+            }
         }
     }
 
-    private void logEntrance(String courierId, String storeName, LocalDateTime time) {
-        if (!shouldLogEntrance(courierId, storeName, time)) {
-            logger.info("Courier {} entered store {} at {}", courierId, storeName, time);
-            lastEntranceTime.computeIfAbsent(courierId, k -> new HashMap<>())
-                    .put(storeName, time);
+    private void enterStore(CourierLocation location, String storeName, ShardedStoreDetector.DetectionCache cache) {
+        if (cache == null || location.getTime() == null) {
+            logEntrance(location.getCourierId(), storeName, location.getTime());
+        } else if (cache.mayEnter(storeName, location.getTime())) {
+            cache.entered(storeName, logEntrance(location.getCourierId(), storeName, location.getTime()));
         }
     }
 
-    private boolean shouldLogEntrance(String courierId, String storeName, LocalDateTime currentTime) {
-        Map<String, LocalDateTime> storeTimes = lastEntranceTime.get(courierId);
-        if (storeTimes != null) {
-            LocalDateTime lastTime = storeTimes.get(storeName);
-            return lastTime != null && currentTime.isBefore(lastTime.plusMinutes(1));
+    // Only the first pings after startup can find H3 still loading. h3Core is set before the stores are
+    // indexed, so the wait is for the whole load, not just for the field
+    private H3Core awaitH3Core() {
+        CompletableFuture<Void> ready = h3Ready;
+        if (ready != null && !ready.isDone()) {
+            ready.join();
         }
-        return false;
+        return h3Core;
+    }
+
+    // Returns the courier's last entrance into the store after this ping, logged now or earlier
+    private LocalDateTime logEntrance(String courierId, String storeName, LocalDateTime time) {
+        if (time == null) {
+            // Cannot be ordered against the last entrance, so it is logged like before entrance times were kept
+            recordEntrance(courierId, storeName, null);
+            return null;
+        }
+        // Check and update in one step, so pings of the courier detected at the same time count only once
+        boolean[] entered = new boolean[1];
+        LocalDateTime lastEntrance = lastEntranceTime.computeIfAbsent(courierId, k -> new ConcurrentHashMap<>())
+                .compute(storeName, (name, lastTime) -> {
+                    if (lastTime != null && time.isBefore(lastTime.plusMinutes(1))) {
+                        return lastTime;
+                    }
+                    entered[0] = true;
+                    return time;
+                });
+        if (entered[0]) {
+            recordEntrance(courierId, storeName, time);
+        }
+        return lastEntrance;
+    }
+
+    private void recordEntrance(String courierId, String storeName, LocalDateTime time) {
+        logger.debug("Courier {} entered store {} at {}", courierId, storeName, time);
+        if (entranceEventSink != null) {
+            entranceEventSink.append(new EntranceEvent(courierId, storeName, time));
+        }
+        if (entranceListener != null) {
+            entranceListener.accept(new EntranceEvent(courierId, storeName, time));
+        }
+        // The rolling buckets are keyed by ping time; an untimed visit still counts for the courier
+        if (time != null) {
+            storeVisitCounter.recordVisit(storeName, time);
+        }
+        courierStoreVisits.computeIfAbsent(courierId, k -> new LongAdder()).increment();
     }
 
     public double getTotalTravelDistance(String courierId) {
@@ -141,6 +521,12 @@ public class CourierLocationService {
             return 0.0;
         }
 
+        synchronized (locations) {
+            return calculateTravelDistance(locations);
+        }
+    }
+
+    private double calculateTravelDistance(List<CourierLocation> locations) {
         double totalDistance = 0.0;
         for (int i = 0; i < locations.size() - 1; i++) {
             CourierLocation current = locations.get(i);
@@ -165,6 +551,233 @@ public class CourierLocationService {
     }
     
     public List<CourierLocation> getCourierLocations(String courierId) {
-        return courierLocations.get(courierId);
+        List<CourierLocation> locations = courierLocations.get(courierId);
+        if (locations == null) {
+            return null;
+        }
+        synchronized (locations) {
+            return new ArrayList<>(locations);
+        }
+    }
+
+    public List<StoreVisitCount> getTopVisitedStores(StoreVisitCounter.Granularity granularity, int buckets, int limit) {
+        return storeVisitCounter.getTopStores(granularity, buckets, limit);
+    }
+
+    public List<VisitBucket> getStoreVisitSeries(String storeName, StoreVisitCounter.Granularity granularity, int buckets) {
+        return storeVisitCounter.getTimeSeries(storeName, granularity, buckets);
+    }
+
+    public List<CourierReport> getFleetReport() {
+        List<CourierReport> reports = Collections.synchronizedList(new ArrayList<>());
+        forEachCourierReport(ForkJoinPool.commonPool(), reports::add);
+        return reports;
+    }
+
+    /**
+     * Computes a report for every courier in parallel on the given pool and hands each one to the
+     * consumer as soon as it is ready. The consumer is called from pool threads and must be thread-safe.
+     */
+    public void forEachCourierReport(ForkJoinPool pool, Consumer<CourierReport> consumer) {
+        Runnable reports;
+        if (storeTrajectories) {
+            Map<String, List<CourierLocation>> snapshot = snapshotLocations();
+            reports = () -> snapshot.entrySet().parallelStream()
+                    .map(entry -> createCourierReport(entry.getKey(), entry.getValue()))
+                    .forEach(consumer);
+        } else {
+            reports = () -> courierSummaries.entrySet().parallelStream()
+                    .map(entry -> entry.getValue().toReport(entry.getKey(), storeVisitsOf(entry.getKey())))
+                    .forEach(consumer);
+        }
+        try {
+            pool.submit(reports).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fleet report interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Fleet report failed", e.getCause());
+        }
+    }
+
+    // Copies every trajectory under its own lock so the report is not affected by concurrent ingest
+    private Map<String, List<CourierLocation>> snapshotLocations() {
+        Map<String, List<CourierLocation>> snapshot = new HashMap<>();
+        courierLocations.forEach((courierId, locations) -> {
+            synchronized (locations) {
+                snapshot.put(courierId, new ArrayList<>(locations));
+            }
+        });
+        return snapshot;
+    }
+
+    private CourierReport createCourierReport(String courierId, List<CourierLocation> locations) {
+        LocalDateTime firstSeen = null;
+        LocalDateTime lastSeen = null;
+        for (CourierLocation location : locations) {
+            LocalDateTime time = location.getTime();
+            if (time == null) {
+                continue;
+            }
+            if (firstSeen == null || time.isBefore(firstSeen)) {
+                firstSeen = time;
+            }
+            if (lastSeen == null || time.isAfter(lastSeen)) {
+                lastSeen = time;
+            }
+        }
+        return new CourierReport(courierId, calculateTravelDistance(locations), locations.size(),
+                firstSeen, lastSeen, storeVisitsOf(courierId));
+    }
+
+    private long storeVisitsOf(String courierId) {
+        LongAdder visits = courierStoreVisits.get(courierId);
+        return visits == null ? 0 : visits.sum();
+    }
+
+    public StoreDetectionStats getStoreDetectionStats() {
+        long hits = prefilterHits.sum();
+        long skips = prefilterSkips.sum();
+        long total = hits + skips;
+        return new StoreDetectionStats(total, hits, skips,
+                total == 0 ? 0.0 : (double) hits / total,
+                total == 0 ? 0.0 : (double) skips / total);
+    }
+
+    /**
+     * Per-shard load of the region-sharded store detection, empty when sharding is disabled.
+     */
+    public List<DetectionShardStats> getDetectionShardStats() {
+        ShardedStoreDetector detector = shardedDetector;
+        return detector == null ? Collections.emptyList() : detector.getStats();
+    }
+
+    /**
+     * Estimated heap held by the per-courier structures, see {@link HeapFootprint} for the assumed layout.
+     * Walks every stored point once without stopping ingest, so the numbers are a moving snapshot.
+     * Bytes that grow with the points (ping objects, list slots, time-ordered arrays) count as per-point
+     * cost, everything else as per-courier cost. With sharded detection the shards' courier caches are
+     * listed as {@code detectionShards}. Not included: the rendered response bodies the controllers cache,
+     * bounded per endpoint by {@code RenderedBodyCache}.
+     */
+    public MemoryFootprint getMemoryFootprint() {
+        long pointBytes = 0;
+        long points = 0;
+
+        long locationBytes = HeapFootprint.concurrentHashMap(courierLocations.size());
+        for (Map.Entry<String, List<CourierLocation>> entry : courierLocations.entrySet()) {
+            String courierId = entry.getKey();
+            List<CourierLocation> locations = entry.getValue();
+            locationBytes += HeapFootprint.string(courierId) + HeapFootprint.ARRAY_LIST;
+            synchronized (locations) {
+                long bytes = HeapFootprint.referenceArray(HeapFootprint.arrayListCapacity(locations.size()));
+                for (CourierLocation location : locations) {
+                    bytes += HeapFootprint.COURIER_LOCATION;
+                    if (location.getTime() != null) {
+                        bytes += HeapFootprint.LOCAL_DATE_TIME;
+                    }
+                    // Ids deserialized per ping are copies of the map key
+                    if (location.getCourierId() != courierId) {
+                        bytes += HeapFootprint.string(location.getCourierId());
+                    }
+                }
+                points += locations.size();
+                pointBytes += bytes;
+                locationBytes += bytes;
+            }
+        }
+
+        // Keys are the same instances as in courierLocations
+        long stateBytes = HeapFootprint.concurrentHashMap(courierStates.size());
+        for (CourierState state : courierStates.values()) {
+            long trackBytes;
+            synchronized (state) {
+                trackBytes = 4 * HeapFootprint.primitiveArray(state.cumulative.capacity(), 8);
+            }
+            stateBytes += HeapFootprint.COURIER_STATE + HeapFootprint.KINEMATIC_TRACK
+                    + HeapFootprint.CUMULATIVE_TRACK + trackBytes;
+            pointBytes += trackBytes;
+        }
+
+        // Entrance times are the ping's own LocalDateTime and store names belong to the stores
+        long entrances = 0;
+        long entranceBytes = HeapFootprint.concurrentHashMap(lastEntranceTime.size());
+        for (Map.Entry<String, Map<String, LocalDateTime>> entry : lastEntranceTime.entrySet()) {
+            int size = entry.getValue().size();
+            entranceBytes += HeapFootprint.string(entry.getKey()) + HeapFootprint.concurrentHashMap(size);
+            entrances += size;
+        }
+
+        long visitBytes = HeapFootprint.concurrentHashMap(courierStoreVisits.size());
+        for (String courierId : courierStoreVisits.keySet()) {
+            visitBytes += HeapFootprint.string(courierId) + HeapFootprint.LONG_ADDER;
+        }
+
+        int couriers = courierStates.size();
+        long totalBytes = locationBytes + stateBytes + entranceBytes + visitBytes;
+        List<StructureFootprint> structures = new ArrayList<>(List.of(
+                new StructureFootprint("courierLocations", points, locationBytes),
+                new StructureFootprint("courierStates", couriers, stateBytes),
+                new StructureFootprint("lastEntranceTime", entrances, entranceBytes),
+                new StructureFootprint("courierStoreVisits", courierStoreVisits.size(), visitBytes)));
+
+        ShardedStoreDetector detector = shardedDetector;
+        if (detector != null) {
+            long shardBytes = detector.estimateCourierBytes();
+            structures.add(new StructureFootprint("detectionShards", detector.getCourierCount(), shardBytes));
+            totalBytes += shardBytes;
+        }
+        return new MemoryFootprint(couriers, points, totalBytes,
+                couriers == 0 ? 0 : (totalBytes - pointBytes) / couriers,
+                points == 0 ? 0 : pointBytes / points,
+                structures);
+    }
+
+    /**
+     * Writes every courier's trajectory to the file in the columnar format of {@link TrajectoryExporter}.
+     */
+    public ExportSummary exportTrajectories(Path file) throws IOException {
+        long start = System.nanoTime();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        ExportSummary summary;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            summary = new TrajectoryExporter().write(courierLocations, channel);
+        }
+        summary.setFile(file.toString());
+        summary.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        logger.info("Exported {} points of {} couriers to {}", summary.getPoints(), summary.getCouriers(), file);
+        return summary;
+    }
+
+    /**
+     * Writes a timestamped export file to {@code courier.export.directory}.
+     */
+    public ExportSummary exportTrajectories() throws IOException {
+        String name = "trajectories-" + LocalDateTime.now().format(EXPORT_FILE_TIME) + ".ctrj";
+        return exportTrajectories(Paths.get(exportDirectory, name));
+    }
+
+    /**
+     * Streams an export to the target in one pass, without a file in between.
+     */
+    public ExportSummary exportTrajectories(WritableByteChannel target) throws IOException {
+        long start = System.nanoTime();
+        ExportSummary summary = new TrajectoryExporter().write(courierLocations, target);
+        summary.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return summary;
+    }
+
+    public List<EntranceEvent> getEntranceEvents(LocalDateTime from, LocalDateTime to) throws IOException {
+        if (entranceEventSink == null) {
+            return Collections.emptyList();
+        }
+        return entranceEventSink.readEvents(from, to);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.Store;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-courier bookkeeping kept next to the stored trajectory. Guarded by its own monitor.
+ */
+class CourierState {
+
+    static final long NO_CELL = 0L; // never a valid H3 index
+
+    private static final int RECENT_PINGS = 16;
+
+    // Bumped on every stored point, readable without the monitor
+    final AtomicLong version = new AtomicLong();
+
+    // Speed filter and distances in arrival order
+    final KinematicTrack kinematics = new KinematicTrack();
+
+    // Timed pings in time order with prefix sums of meters, for distance over a time window
+    final CumulativeTrack cumulative = new CumulativeTrack();
+
+    // Store detection result of the last cell the courier was seen in
+    long lastCell = NO_CELL;
+    Store[] lastCandidates;
+    boolean lastCellNearStore;
+
+    // Duplicate detection: newest ping time plus the hashes of the last few pings
+    private long watermark = Long.MIN_VALUE;
+    private final long[] recentHashes = new long[RECENT_PINGS];
+    private int recentCount;
+    private int recentNext;
+
+    /**
+     * Returns false if the ping is a resend of one of the recent pings. A ping newer than every ping
+     * seen so far cannot be a duplicate and skips the window probe.
+     */
+    boolean registerPing(long timeNanos, long hash) {
+        if (timeNanos <= watermark) {
+            for (int i = 0; i < recentCount; i++) {
+                if (recentHashes[i] == hash) {
+                    return false;
+                }
+            }
+        } else {
+            watermark = timeNanos;
+        }
+        recentHashes[recentNext] = hash;
+        recentNext = (recentNext + 1) % RECENT_PINGS;
+        recentCount = Math.min(recentCount + 1, RECENT_PINGS);
+        return true;
+    }
+}
@@ -0,0 +1,107 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.util.DistanceCalculator;
+
+import java.util.Arrays;
+
+/**
+ * A courier's timed pings sorted by time, with the cumulative meters travelled up to each of them. The distance
+ * over a time window is the difference of two prefix sums found by binary search. Pings arriving in order are
+ * appended in O(1); a late ping is inserted in place and the prefix sums after it are recomputed.
+ * Not thread-safe; guarded by the owning {@link CourierState}.
+ */
+final class CumulativeTrack {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] times = new long[0];
+    private double[] lats = new double[0];
+    private double[] lngs = new double[0];
+    // cumulative[i] = meters from the first ping to ping i along the time-ordered path
+    private double[] cumulative = new double[0];
+    private int size;
+
+    void add(long timeNanos, double lat, double lng) {
+        ensureCapacity(size + 1);
+        int index = upperBound(timeNanos);
+        if (index < size) {
+            int tail = size - index;
+            System.arraycopy(times, index, times, index + 1, tail);
+            System.arraycopy(lats, index, lats, index + 1, tail);
+            System.arraycopy(lngs, index, lngs, index + 1, tail);
+        }
+        times[index] = timeNanos;
+        lats[index] = lat;
+        lngs[index] = lng;
+        size++;
+        for (int i = index; i < size; i++) {
+            cumulative[i] = i == 0 ? 0.0
+                    : cumulative[i - 1] + DistanceCalculator.haversineMeters(lats[i - 1], lngs[i - 1], lats[i], lngs[i]);
+        }
+    }
+
+    /**
+     * Meters travelled between the first and the last ping within {@code [fromNanos, toNanos]}.
+     */
+    double distanceBetween(long fromNanos, long toNanos) {
+        int first = lowerBound(fromNanos);
+        int last = upperBound(toNanos) - 1;
+        return last <= first ? 0.0 : cumulative[last] - cumulative[first];
+    }
+
+    /**
+     * Number of pings within {@code [fromNanos, toNanos]}.
+     */
+    int countBetween(long fromNanos, long toNanos) {
+        return Math.max(0, upperBound(toNanos) - lowerBound(fromNanos));
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return times.length;
+    }
+
+    // First index with a time >= timeNanos
+    private int lowerBound(long timeNanos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < timeNanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index with a time > timeNanos
+    private int upperBound(long timeNanos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= timeNanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= times.length) {
+            return;
+        }
+        int newCapacity = Math.max(INITIAL_CAPACITY, Math.max(capacity, times.length + (times.length >> 1)));
+        times = Arrays.copyOf(times, newCapacity);
+        lats = Arrays.copyOf(lats, newCapacity);
+        lngs = Arrays.copyOf(lngs, newCapacity);
+        cumulative = Arrays.copyOf(cumulative, newCapacity);
+    }
+}
@@ -0,0 +1,366 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.EntranceEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only NDJSON log of store entrances. Request threads only enqueue; a single writer thread
+ * drains the queue in batches, writes and flushes each batch at once and rotates segments by size or age.
+ * Closed segments carry the time range of their events in the file name, so range scans skip them cheaply.
+ */
+@Component
+public class EntranceEventSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntranceEventSink.class);
+
+    private static final int MAX_BATCH = 4096;
+    private static final String ACTIVE_SUFFIX = ".ndjson.active";
+    private static final Pattern SEGMENT_NAME =
+            Pattern.compile("segment-(\\d+)(?:_(-?\\d+)_(-?\\d+)\\.ndjson|\\.ndjson\\.active)");
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final long segmentMaxBytes;
+    private final long segmentMaxAgeMillis;
+    private final long flushIntervalMillis;
+    private final boolean fsync;
+    private final BlockingQueue<EntranceEvent> queue;
+
+    private final LongAdder writtenEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    // Owned by the writer thread
+    private FileChannel segmentChannel;
+    private Path segmentPath;
+    private long segmentSequence;
+    private long segmentBytes;
+    private long segmentOpenedAt;
+    private long segmentMinTime;
+    private long segmentMaxTime;
+
+    @Autowired
+    public EntranceEventSink(ObjectMapper objectMapper,
+                             @Value("${courier.entrance-log.directory:data/entrances}") String directory,
+                             @Value("${courier.entrance-log.segment-max-bytes:67108864}") long segmentMaxBytes,
+                             @Value("${courier.entrance-log.segment-max-age:PT1H}") Duration segmentMaxAge,
+                             @Value("${courier.entrance-log.flush-interval-ms:200}") long flushIntervalMillis,
+                             @Value("${courier.entrance-log.queue-capacity:65536}") int queueCapacity,
+                             @Value("${courier.entrance-log.fsync:true}") boolean fsync) {
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.segmentMaxAgeMillis = segmentMaxAge.toMillis();
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.fsync = fsync;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        segmentSequence = listSegments().stream().mapToLong(Segment::getSequence).max().orElse(0);
+        running = true;
+        writerThread = new Thread(this::runWriter, "entrance-event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Entrance events are written to {}", directory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writerThread != null) {
+            try {
+                // No interrupt: it would close the FileChannel in the middle of a write
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Hands an event to the writer thread without blocking. Returns false and counts the event as
+     * dropped when the queue is full, so ingest latency never depends on the disk.
+     */
+    public boolean append(EntranceEvent event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+        droppedEvents.increment();
+        return false;
+    }
+
+    public long getWrittenEvents() {
+        return writtenEvents.sum();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Scans the written segments for events with {@code from <= time <= to}, ordered by time.
+     * Events still queued for the writer are not visible yet.
+     */
+    public List<EntranceEvent> readEvents(LocalDateTime from, LocalDateTime to) throws IOException {
+        long fromSeconds = from.toEpochSecond(ZoneOffset.UTC);
+        long toSeconds = to.toEpochSecond(ZoneOffset.UTC);
+        List<EntranceEvent> events = new ArrayList<>();
+        for (Segment segment : listSegments()) {
+            if (segment.isClosed() && (segment.getMaxTime() < fromSeconds || segment.getMinTime() > toSeconds)) {
+                continue;
+            }
+            BufferedReader reader = openReader(segment);
+            if (reader == null) {
+                continue;
+            }
+            try (reader) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    EntranceEvent event = parse(line);
+                    if (event != null && event.getTime() != null
+                            && !event.getTime().isBefore(from) && !event.getTime().isAfter(to)) {
+                        events.add(event);
+                    }
+                }
+            }
+        }
+        events.sort(Comparator.comparing(EntranceEvent::getTime));
+        return events;
+    }
+
+    /**
+     * Opens a listed segment. The writer may have closed and renamed an active segment since it was listed;
+     * it is then read under its closed name, found by sequence. Returns null if it is gone altogether.
+     */
+    private BufferedReader openReader(Segment segment) throws IOException {
+        try {
+            return Files.newBufferedReader(segment.getPath());
+        } catch (NoSuchFileException e) {
+            if (segment.isClosed()) {
+                throw e;
+            }
+            String closedName = String.format("segment-%09d_*.ndjson", segment.getSequence());
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, closedName)) {
+                for (Path file : files) {
+                    return Files.newBufferedReader(file);
+                }
+            }
+            return null;
+        }
+    }
+
+    private EntranceEvent parse(String line) {
+        if (line.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(line, EntranceEvent.class);
+        } catch (IOException e) {
+            // The tail of the active segment may be a partially written line
+            return null;
+        }
+    }
+
+    private void runWriter() {
+        List<EntranceEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                EntranceEvent first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    try {
+                        writeBatch(batch);
+                    } catch (IOException e) {
+                        logger.error("Error writing entrance events to {}: {}", segmentPath, e.getMessage());
+                        droppedEvents.add(batch.size());
+                        abandonSegment();
+                    } finally {
+                        batch.clear();
+                    }
+                }
+                if (segmentChannel != null && (segmentBytes >= segmentMaxBytes
+                        || System.currentTimeMillis() - segmentOpenedAt >= segmentMaxAgeMillis)) {
+                    rotateSegment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            logger.error("Error closing entrance event segment {}: {}", segmentPath, e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<EntranceEvent> batch) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(batch.size() * 96);
+        for (EntranceEvent event : batch) {
+            buffer.write(objectMapper.writeValueAsBytes(event));
+            buffer.write('\n');
+        }
+        if (segmentChannel == null) {
+            openSegment();
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            segmentChannel.write(bytes);
+        }
+        // One flush (and optional fsync) per batch instead of per event
+        if (fsync) {
+            segmentChannel.force(false);
+        }
+        for (EntranceEvent event : batch) {
+            if (event.getTime() != null) {
+                long seconds = event.getTime().toEpochSecond(ZoneOffset.UTC);
+                segmentMinTime = Math.min(segmentMinTime, seconds);
+                segmentMaxTime = Math.max(segmentMaxTime, seconds);
+            }
+        }
+        segmentBytes += buffer.size();
+        writtenEvents.add(batch.size());
+    }
+
+    // The events of the segment are already written; if it cannot be closed they stay in the active file
+    private void rotateSegment() {
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            logger.error("Error closing entrance event segment {}: {}", segmentPath, e.getMessage());
+            abandonSegment();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentSequence++;
+        segmentPath = directory.resolve(String.format("segment-%09d%s", segmentSequence, ACTIVE_SUFFIX));
+        segmentChannel = FileChannel.open(segmentPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentBytes = 0;
+        segmentOpenedAt = System.currentTimeMillis();
+        segmentMinTime = Long.MAX_VALUE;
+        segmentMaxTime = Long.MIN_VALUE;
+    }
+
+    private void closeSegment() throws IOException {
+        if (segmentChannel == null) {
+            return;
+        }
+        segmentChannel.force(false);
+        segmentChannel.close();
+        segmentChannel = null;
+        if (segmentMinTime > segmentMaxTime) {
+            // No timestamped events; keep the file as an open segment so readers still scan it
+            return;
+        }
+        Path closedPath = directory.resolve(String.format("segment-%09d_%d_%d.ndjson",
+                segmentSequence, segmentMinTime, segmentMaxTime));
+        Files.move(segmentPath, closedPath);
+        segmentPath = closedPath;
+    }
+
+    private void abandonSegment() {
+        try {
+            if (segmentChannel != null) {
+                segmentChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Error closing entrance event segment {}: {}", segmentPath, e.getMessage());
+        }
+        segmentChannel = null;
+    }
+
+    private List<Segment> listSegments() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(new Segment(file, Long.parseLong(matcher.group(1)), matcher.group(2) != null,
+                            matcher.group(2) != null ? Long.parseLong(matcher.group(2)) : Long.MIN_VALUE,
+                            matcher.group(3) != null ? Long.parseLong(matcher.group(3)) : Long.MAX_VALUE));
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(Segment::getSequence));
+        return segments;
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long sequence;
+        private final boolean closed;
+        private final long minTime;
+        private final long maxTime;
+
+        Segment(Path path, long sequence, boolean closed, long minTime, long maxTime) {
+            this.path = path;
+            this.sequence = sequence;
+            this.closed = closed;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        long getMinTime() {
+            return minTime;
+        }
+
+        long getMaxTime() {
+            return maxTime;
+        }
+    }
+}
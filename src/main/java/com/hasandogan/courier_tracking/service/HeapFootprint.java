@@ -0,0 +1,112 @@
+package com.hasandogan.courier_tracking.service;
+
+/**
+ * Shallow sizes of the objects the service keeps per courier and per ping, for a 64-bit JVM with compressed
+ * oops and class pointers (the default below 32 GB of heap): 12-byte object headers, 16-byte array headers,
+ * 4-byte references and 8-byte alignment. The numbers are estimates that can be checked against JOL.
+ */
+final class HeapFootprint {
+
+    static final int OBJECT_HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 4;
+
+    // LocalDateTime with its LocalDate and LocalTime
+    static final long LOCAL_DATE_TIME = align(OBJECT_HEADER + 2 * REFERENCE)
+            + align(OBJECT_HEADER + 4 + 2 + 2)
+            + align(OBJECT_HEADER + 3 + 4);
+    // CourierLocation: time, courierId, latitude, longitude
+    static final long COURIER_LOCATION = align(OBJECT_HEADER + 2 * REFERENCE + 2 * 8);
+    // ConcurrentHashMap itself with the AbstractMap view fields, without its table
+    static final long CONCURRENT_HASH_MAP = align(OBJECT_HEADER + 8 * REFERENCE + 8 + 3 * 4);
+    // ConcurrentHashMap.Node: hash, key, val, next
+    static final long MAP_NODE = align(OBJECT_HEADER + 4 + 3 * REFERENCE);
+    // HashMap itself with the AbstractMap view fields, without its table
+    static final long HASH_MAP = align(OBJECT_HEADER + 4 * REFERENCE + 4 * 4);
+    // HashMap.Node: hash, key, value, next
+    static final long HASH_MAP_NODE = align(OBJECT_HEADER + 4 + 3 * REFERENCE);
+    // ArrayList itself, without its element array
+    static final long ARRAY_LIST = align(OBJECT_HEADER + 2 * 4 + REFERENCE);
+    static final long LONG_ADDER = align(OBJECT_HEADER + 8 + REFERENCE + 4);
+    static final long ATOMIC_LONG = align(OBJECT_HEADER + 8);
+
+    // CourierState with its version counter and duplicate window, without the tracks
+    static final long COURIER_STATE = align(OBJECT_HEADER + 5 * REFERENCE + 2 * 8 + 1 + 2 * 4)
+            + ATOMIC_LONG + primitiveArray(16, 8);
+    static final long KINEMATIC_TRACK = align(OBJECT_HEADER + 3 + 10 * 8 + 4 * 8);
+    // CumulativeTrack without its arrays
+    static final long CUMULATIVE_TRACK = align(OBJECT_HEADER + 4 * REFERENCE + 4);
+    // A detection shard's cache of one courier, without its entrance map
+    static final long DETECTION_CACHE = align(OBJECT_HEADER + 8 + 2 * REFERENCE + 1);
+
+    private HeapFootprint() {
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long referenceArray(int length) {
+        return align(ARRAY_HEADER + (long) length * REFERENCE);
+    }
+
+    static long primitiveArray(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    /**
+     * A String and its byte array, Latin-1 if possible as with compact strings.
+     */
+    static long string(String value) {
+        int length = value.length();
+        boolean latin1 = true;
+        for (int i = 0; i < length && latin1; i++) {
+            latin1 = value.charAt(i) <= 0xFF;
+        }
+        return align(OBJECT_HEADER + 4 + 1 + 1 + REFERENCE) + primitiveArray(latin1 ? length : 2 * length, 1);
+    }
+
+    /**
+     * Capacity of an ArrayList that reached {@code size} by appends alone.
+     */
+    static int arrayListCapacity(int size) {
+        if (size == 0) {
+            return 0;
+        }
+        int capacity = 10;
+        while (capacity < size) {
+            capacity += Math.max(1, capacity >> 1);
+        }
+        return capacity;
+    }
+
+    /**
+     * A ConcurrentHashMap with {@code size} entries: the map, its table and one node per entry, without
+     * keys and values.
+     */
+    static long concurrentHashMap(int size) {
+        if (size == 0) {
+            return CONCURRENT_HASH_MAP; // the table is allocated on the first put
+        }
+        int capacity = 16;
+        while (size >= capacity - (capacity >>> 2)) {
+            capacity <<= 1;
+        }
+        return CONCURRENT_HASH_MAP + referenceArray(capacity) + size * MAP_NODE;
+    }
+
+    /**
+     * A HashMap with {@code size} entries and default sizing: the map, its table and one node per entry,
+     * without keys and values.
+     */
+    static long hashMap(int size) {
+        if (size == 0) {
+            return HASH_MAP;
+        }
+        int capacity = 16;
+        while (size > capacity - (capacity >>> 2)) {
+            capacity <<= 1;
+        }
+        return HASH_MAP + referenceArray(capacity) + size * HASH_MAP_NODE;
+    }
+}
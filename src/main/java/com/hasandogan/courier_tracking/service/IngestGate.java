@@ -0,0 +1,235 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.IngestStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Admission control in front of {@link CourierLocationService#processLocation}.
+ * Every client gets a token bucket and at most {@code maxInFlight} pings are processed at once. When
+ * all slots are busy a ping is still recorded for distance accounting, but its store detection is
+ * parked per courier where a newer ping replaces an older one; a single worker drains the latest ones.
+ * Only when that table is full as well is the ping rejected.
+ */
+@Component
+public class IngestGate {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestGate.class);
+
+    private static final int MAX_TRACKED_CLIENTS = 100_000;
+    private static final long IDLE_CLIENT_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    public enum Admission {
+        ACCEPTED,      // caller processes the ping now and must call release()
+        COALESCED,     // recorded, store detection deferred to the newest pending ping of the courier
+        RATE_LIMITED,  // client exceeded its token bucket
+        OVERLOADED     // no processing slot and no room to defer
+    }
+
+    private final CourierLocationService courierLocationService;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final double clientRatePerSecond;
+    private final int clientBurst;
+    private final int maxPendingCouriers;
+    private final boolean trustClientIdHeader;
+
+    private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    // Shared by new clients while the table is full, until idle ones are evicted
+    private final TokenBucket overflowBucket;
+    private final Map<String, CourierLocation> pendingDetections = new ConcurrentHashMap<>();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder supersededDetections = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+
+    private volatile boolean running;
+    private Thread drainThread;
+
+    public IngestGate(CourierLocationService courierLocationService, int maxInFlight, double clientRatePerSecond,
+                      int clientBurst, int maxPendingCouriers) {
+        this(courierLocationService, maxInFlight, clientRatePerSecond, clientBurst, maxPendingCouriers, true);
+    }
+
+    @Autowired
+    public IngestGate(CourierLocationService courierLocationService,
+                      @Value("${courier.ingest.max-in-flight:64}") int maxInFlight,
+                      @Value("${courier.ingest.client-rate-per-second:50}") double clientRatePerSecond,
+                      @Value("${courier.ingest.client-burst:100}") int clientBurst,
+                      @Value("${courier.ingest.max-pending-couriers:10000}") int maxPendingCouriers,
+                      @Value("${courier.ingest.trust-client-id-header:true}") boolean trustClientIdHeader) {
+        this.courierLocationService = courierLocationService;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.clientRatePerSecond = clientRatePerSecond;
+        this.clientBurst = clientBurst;
+        this.maxPendingCouriers = maxPendingCouriers;
+        this.trustClientIdHeader = trustClientIdHeader;
+        this.overflowBucket = new TokenBucket(clientRatePerSecond, clientBurst);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        drainThread = new Thread(this::drainPendingDetections, "ingest-coalescing-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (drainThread != null) {
+            LockSupport.unpark(drainThread);
+            try {
+                drainThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public Admission admit(String clientKey, CourierLocation location) {
+        if (!tokenBucketFor(clientKey).tryConsume()) {
+            rateLimited.increment();
+            return Admission.RATE_LIMITED;
+        }
+        if (inFlight.tryAcquire()) {
+            accepted.increment();
+            return Admission.ACCEPTED;
+        }
+
+        String courierId = location.getCourierId();
+        if (pendingDetections.size() >= maxPendingCouriers && !pendingDetections.containsKey(courierId)) {
+            overloaded.increment();
+            return Admission.OVERLOADED;
+        }
+        if (!courierLocationService.recordLocation(location)) {
+            // Duplicate resend or GPS jump, nothing left to detect
+            coalesced.increment();
+            return Admission.COALESCED;
+        }
+        pendingDetections.merge(courierId, location, (pending, incoming) -> {
+            supersededDetections.increment();
+            // An out-of-order retry must not replace a newer pending ping
+            return isNewer(pending, incoming) ? pending : incoming;
+        });
+        coalesced.increment();
+        LockSupport.unpark(drainThread);
+        return Admission.COALESCED;
+    }
+
+    /**
+     * The rate-limit key of a request. The {@code X-Client-Id} header is not authenticated, so a device can
+     * dodge its limit by rotating it; with {@code courier.ingest.trust-client-id-header=false} the remote
+     * address is used instead.
+     */
+    public String clientKey(String clientIdHeader, String remoteAddress) {
+        if (trustClientIdHeader && clientIdHeader != null) {
+            return clientIdHeader;
+        }
+        return remoteAddress != null ? remoteAddress : "unknown";
+    }
+
+    public void release() {
+        inFlight.release();
+    }
+
+    public IngestStats getStats() {
+        return new IngestStats(accepted.sum(), coalesced.sum(), supersededDetections.sum(),
+                rateLimited.sum(), overloaded.sum(), courierLocationService.getRejectedDuplicates(),
+                courierLocationService.getGpsJumps(), maxInFlight - inFlight.availablePermits(), pendingDetections.size());
+    }
+
+    private void drainPendingDetections() {
+        long lastEviction = System.nanoTime();
+        while (running || !pendingDetections.isEmpty()) {
+            long now = System.nanoTime();
+            if (now - lastEviction >= EVICTION_INTERVAL_NANOS) {
+                evictIdleClients(now);
+                lastEviction = now;
+            }
+            if (pendingDetections.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                continue;
+            }
+            for (String courierId : pendingDetections.keySet()) {
+                CourierLocation latest = pendingDetections.remove(courierId);
+                if (latest == null) {
+                    continue;
+                }
+                try {
+                    courierLocationService.detectStoreEntrance(latest);
+                } catch (RuntimeException e) {
+                    logger.error("Error detecting store entrance for courier {}: {}", courierId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private TokenBucket tokenBucketFor(String clientKey) {
+        TokenBucket bucket = clientBuckets.get(clientKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (clientBuckets.size() >= MAX_TRACKED_CLIENTS) {
+            return overflowBucket;
+        }
+        return clientBuckets.computeIfAbsent(clientKey, k -> new TokenBucket(clientRatePerSecond, clientBurst));
+    }
+
+    // Runs on the drain thread, so admission never pays for the scan
+    void evictIdleClients(long now) {
+        clientBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+
+    private static boolean isNewer(CourierLocation candidate, CourierLocation other) {
+        return candidate.getTime() != null && other.getTime() != null && candidate.getTime().isAfter(other.getTime());
+    }
+
+    static final class TokenBucket {
+
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double ratePerSecond, int capacity) {
+            this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryConsume() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now - lastRefill > IDLE_CLIENT_NANOS;
+        }
+    }
+}
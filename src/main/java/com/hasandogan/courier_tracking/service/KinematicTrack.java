@@ -0,0 +1,113 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.util.DistanceCalculator;
+
+/**
+ * Constant-size speed filter over a courier's pings in arrival order. A ping that would need more than the
+ * maximum speed from the last accepted point is marked as a GPS jump and left out of the filtered distance.
+ * Two consecutive pings that agree with each other but not with the anchor mean the courier really is
+ * elsewhere (e.g. after a data gap), so the track re-anchors there instead of rejecting everything after it.
+ * Not thread-safe; guarded by the owning {@link CourierState}.
+ */
+final class KinematicTrack {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    // Previous stored ping, for the unfiltered distance
+    private boolean hasLast;
+    private double lastLat;
+    private double lastLng;
+
+    // Last accepted ping
+    private boolean hasAnchor;
+    private double anchorLat;
+    private double anchorLng;
+    private long anchorTime;
+
+    // Last rejected ping, a re-anchor candidate
+    private boolean hasSuspect;
+    private double suspectLat;
+    private double suspectLng;
+    private long suspectTime;
+
+    double rawDistance;
+    double filteredDistance;
+    double currentSpeed;
+    double maxSpeed;
+    long movingNanos;
+    long rejectedJumps;
+
+    /**
+     * Adds a stored ping and returns false if it is a physically impossible jump. Pings without a time
+     * or older than the anchor only count towards the raw distance.
+     */
+    boolean update(boolean timed, long timeNanos, double lat, double lng, double maxSpeedMetersPerSecond) {
+        if (hasLast) {
+            rawDistance += DistanceCalculator.haversineMeters(lastLat, lastLng, lat, lng);
+        }
+        hasLast = true;
+        lastLat = lat;
+        lastLng = lng;
+
+        if (!timed) {
+            return true;
+        }
+        if (!hasAnchor) {
+            anchor(timeNanos, lat, lng);
+            return true;
+        }
+        long elapsed = timeNanos - anchorTime;
+        if (elapsed < 0) {
+            return true; // late arrival, no speed can be derived from it
+        }
+        double distance = DistanceCalculator.haversineMeters(anchorLat, anchorLng, lat, lng);
+        if (isPlausible(distance, elapsed, maxSpeedMetersPerSecond)) {
+            accept(distance, elapsed);
+            anchor(timeNanos, lat, lng);
+            hasSuspect = false;
+            return true;
+        }
+
+        if (hasSuspect && timeNanos >= suspectTime) {
+            double fromSuspect = DistanceCalculator.haversineMeters(suspectLat, suspectLng, lat, lng);
+            long sinceSuspect = timeNanos - suspectTime;
+            if (isPlausible(fromSuspect, sinceSuspect, maxSpeedMetersPerSecond)) {
+                // The path between the anchor and the suspect is unknown and stays uncounted
+                accept(fromSuspect, sinceSuspect);
+                anchor(timeNanos, lat, lng);
+                hasSuspect = false;
+                return true;
+            }
+        }
+        rejectedJumps++;
+        hasSuspect = true;
+        suspectLat = lat;
+        suspectLng = lng;
+        suspectTime = timeNanos;
+        return false;
+    }
+
+    private static boolean isPlausible(double distance, long elapsedNanos, double maxSpeedMetersPerSecond) {
+        return distance <= maxSpeedMetersPerSecond * (elapsedNanos / NANOS_PER_SECOND);
+    }
+
+    private void accept(double distance, long elapsedNanos) {
+        filteredDistance += distance;
+        movingNanos += elapsedNanos;
+        if (elapsedNanos > 0) {
+            currentSpeed = distance / (elapsedNanos / NANOS_PER_SECOND);
+            maxSpeed = Math.max(maxSpeed, currentSpeed);
+        }
+    }
+
+    private void anchor(long timeNanos, double lat, double lng) {
+        hasAnchor = true;
+        anchorLat = lat;
+        anchorLng = lng;
+        anchorTime = timeNanos;
+    }
+
+    double averageSpeed() {
+        return movingNanos == 0 ? 0.0 : filteredDistance / (movingNanos / NANOS_PER_SECOND);
+    }
+}
@@ -0,0 +1,325 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.DetectionShardStats;
+import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.util.LongObjectHashMap;
+import com.uber.h3core.H3Core;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Store detection split by coarse H3 region. Every fine cell of the store index belongs to the shard of its
+ * resolution-{@value #REGION_RESOLUTION} parent, and each shard has one worker thread that alone owns that part
+ * of the index and the detection state of the couriers currently in its regions. Pings are routed by the parent
+ * of their cell, so a courier's state never crosses threads; when a courier moves to a region of another shard,
+ * the previous shard is told to drop it and the new one starts from an empty cache. The cache also remembers
+ * the courier's recent entrances, so repeated pings inside a store are dropped on the shard's thread and only a
+ * likely new entrance reaches the shared visit state.
+ */
+class ShardedStoreDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedStoreDetector.class);
+
+    static final int REGION_RESOLUTION = 3;
+
+    static final int QUEUE_CAPACITY = 8192;
+    private static final int ENTRANCE_MAP_CAPACITY = 4;
+
+    /**
+     * Distance and polygon checks for a ping whose cell is near a store; called on the shard's worker thread
+     * with the courier's cache of that shard.
+     */
+    interface StoreMatcher {
+        void match(CourierLocation location, long courierCell, Store[] candidates, DetectionCache cache);
+    }
+
+    private final H3Core h3Core;
+    private final Shard[] shards;
+    private final Map<String, CourierRoute> courierShards = new ConcurrentHashMap<>();
+
+    // Submitters queue under the read lock, so no ping can land behind a shard's STOP
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private boolean stopped;
+
+    private ShardedStoreDetector(H3Core h3Core, Shard[] shards) {
+        this.h3Core = h3Core;
+        this.shards = shards;
+    }
+
+    static ShardedStoreDetector start(H3Core h3Core, StoreCellIndex cellIndex, StoreGeofenceIndex geofences,
+                                      int shardCount, StoreMatcher matcher) {
+        List<LongObjectHashMap<Store[]>> partitions = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            partitions.add(new LongObjectHashMap<>(Math.max(16, cellIndex.size() / shardCount)));
+        }
+        cellIndex.forEachCell(cell -> partitions.get(shardOf(h3Core.cellToParent(cell, REGION_RESOLUTION), shardCount))
+                .put(cell, cellIndex.getCandidates(cell)));
+
+        Shard[] shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, new StoreCellIndex(partitions.get(i)), partitions.get(i).size(), geofences, matcher);
+            shards[i].start();
+        }
+        logger.info("Store detection runs on {} region shards", shardCount);
+        return new ShardedStoreDetector(h3Core, shards);
+    }
+
+    static int shardOf(long region, int shardCount) {
+        long hash = region * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(hash ^ (hash >>> 32), shardCount);
+    }
+
+    /**
+     * Hands the ping to the shard owning its region. Blocks while that shard's queue is full, which bounds
+     * the backlog the same way the ingest gate bounds in-flight requests. Returns false without queueing
+     * once the detector is stopped, so the caller can hand the ping to its replacement.
+     */
+    boolean submit(CourierLocation location, long courierCell) {
+        Shard shard = shards[shardOf(h3Core.cellToParent(courierCell, REGION_RESOLUTION), shards.length)];
+        String courierId = location.getCourierId();
+        CourierRoute route = courierShards.computeIfAbsent(courierId, k -> new CourierRoute());
+        stopLock.readLock().lock();
+        try {
+            if (stopped) {
+                return false;
+            }
+            // Routed and enqueued under the courier's own route: two pings of a courier crossing a region border
+            // at once must not leave the old shard a ping behind its drop. A full queue only holds up pings of
+            // this courier, which would queue behind it anyway
+            synchronized (route) {
+                if (route.shard != shard) {
+                    if (route.shard != null) {
+                        route.shard.enqueue(new Task(courierId, null, CourierState.NO_CELL));
+                        shard.handoffs.increment();
+                    }
+                    route.shard = shard;
+                }
+                shard.enqueue(new Task(courierId, location, courierCell));
+            }
+            return true;
+        } finally {
+            stopLock.readLock().unlock();
+        }
+    }
+
+    int getCourierCount() {
+        int couriers = 0;
+        for (Shard shard : shards) {
+            couriers += shard.courierCount;
+        }
+        return couriers;
+    }
+
+    /**
+     * Estimated heap held by the per-courier caches of all shards, from counters the workers publish; see
+     * {@link HeapFootprint}. Candidate arrays and store names are shared with the cell index and not counted.
+     */
+    long estimateCourierBytes() {
+        long bytes = 0;
+        for (Shard shard : shards) {
+            int couriers = shard.courierCount;
+            long entranceMap = HeapFootprint.HASH_MAP + HeapFootprint.referenceArray(ENTRANCE_MAP_CAPACITY);
+            bytes += HeapFootprint.hashMap(couriers) + couriers * HeapFootprint.DETECTION_CACHE
+                    + shard.entranceMaps * entranceMap + shard.entrances * HeapFootprint.HASH_MAP_NODE;
+        }
+        return bytes;
+    }
+
+    List<DetectionShardStats> getStats() {
+        List<DetectionShardStats> stats = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            stats.add(new DetectionShardStats(shard.number, shard.cellCount, shard.courierCount,
+                    shard.processed.sum(), shard.handoffs.sum(), shard.queue.size()));
+        }
+        return stats;
+    }
+
+    /**
+     * Lets every ping queued so far finish, then ends the workers. Waits for submitters that are still
+     * queueing; later submits are refused.
+     */
+    void stop() {
+        stopLock.writeLock().lock();
+        try {
+            stopped = true;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+        for (Shard shard : shards) {
+            shard.enqueue(Task.STOP);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * What a shard keeps per courier: the detection result of the last cell and the courier's recent
+     * entrances. Only touched by the worker thread of the shard.
+     */
+    static final class DetectionCache {
+
+        private long lastCell = CourierState.NO_CELL;
+        private Store[] lastCandidates;
+        private boolean lastCellNearStore;
+
+        // storeName -> last entrance known to this shard; most couriers never need it
+        private Map<String, LocalDateTime> lastEntrances;
+
+        /**
+         * False if the shard already saw an entrance into the store less than a minute before {@code time}.
+         * The shared entrance times only move forward, so such a ping would not be logged anyway.
+         */
+        boolean mayEnter(String storeName, LocalDateTime time) {
+            LocalDateTime lastTime = lastEntrances == null ? null : lastEntrances.get(storeName);
+            return lastTime == null || !time.isBefore(lastTime.plusMinutes(1));
+        }
+
+        void entered(String storeName, LocalDateTime lastTime) {
+            if (lastEntrances == null) {
+                lastEntrances = new HashMap<>(ENTRANCE_MAP_CAPACITY);
+            }
+            lastEntrances.put(storeName, lastTime);
+        }
+
+        int entranceCount() {
+            return lastEntrances == null ? 0 : lastEntrances.size();
+        }
+    }
+
+    // The shard a courier's pings currently go to; its monitor orders the courier's handoffs and pings
+    private static final class CourierRoute {
+
+        Shard shard;
+    }
+
+    private static final class Task {
+
+        static final Task STOP = new Task(null, null, CourierState.NO_CELL);
+
+        final String courierId;
+        final CourierLocation location; // null for a handoff
+        final long cell;
+
+        Task(String courierId, CourierLocation location, long cell) {
+            this.courierId = courierId;
+            this.location = location;
+            this.cell = cell;
+        }
+    }
+
+    private static final class Shard {
+
+        final int number;
+        final StoreCellIndex cellIndex;
+        final int cellCount;
+        final StoreGeofenceIndex geofences;
+        final StoreMatcher matcher;
+        final BlockingQueue<Task> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final LongAdder processed = new LongAdder();
+        final LongAdder handoffs = new LongAdder();
+        final Thread worker;
+
+        // Owned by the worker thread
+        private final Map<String, DetectionCache> couriers = new HashMap<>();
+        volatile int courierCount;
+        volatile int entranceMaps;
+        volatile int entrances;
+
+        Shard(int number, StoreCellIndex cellIndex, int cellCount, StoreGeofenceIndex geofences, StoreMatcher matcher) {
+            this.number = number;
+            this.cellIndex = cellIndex;
+            this.cellCount = cellCount;
+            this.geofences = geofences;
+            this.matcher = matcher;
+            this.worker = new Thread(this::run, "store-detection-shard-" + number);
+            this.worker.setDaemon(true);
+        }
+
+        void start() {
+            worker.start();
+        }
+
+        void enqueue(Task task) {
+            try {
+                queue.put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            while (true) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (task == Task.STOP) {
+                    return;
+                }
+                if (task.location == null) {
+                    DetectionCache dropped = couriers.remove(task.courierId);
+                    if (dropped != null) {
+                        countEntrances(dropped.entranceCount(), 0);
+                    }
+                } else {
+                    try {
+                        detect(task);
+                    } catch (RuntimeException e) {
+                        logger.error("Error detecting store entrance for courier {}: {}", task.courierId, e.getMessage());
+                    }
+                    processed.increment();
+                }
+                courierCount = couriers.size();
+            }
+        }
+
+        // Written by the worker alone, so plain increments of the volatile counters are safe
+        private void countEntrances(int before, int after) {
+            if ((before == 0) != (after == 0)) {
+                entranceMaps += after == 0 ? -1 : 1;
+            }
+            entrances += after - before;
+        }
+
+        private void detect(Task task) {
+            DetectionCache cache = couriers.computeIfAbsent(task.courierId, k -> new DetectionCache());
+            int entrancesBefore = cache.entranceCount();
+            if (task.cell != cache.lastCell) {
+                cache.lastCell = task.cell;
+                cache.lastCandidates = cellIndex.getCandidates(task.cell);
+                cache.lastCellNearStore = cache.lastCandidates.length > 0
+                        || (geofences != null && geofences.covers(task.cell));
+            }
+            if (cache.lastCellNearStore) {
+                try {
+                    matcher.match(task.location, task.cell, cache.lastCandidates, cache);
+                } finally {
+                    countEntrances(entrancesBefore, cache.entranceCount());
+                }
+            }
+        }
+    }
+}
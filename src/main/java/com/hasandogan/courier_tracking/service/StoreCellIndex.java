@@ -0,0 +1,68 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.util.LongObjectHashMap;
+import com.uber.h3core.H3Core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Maps every H3 cell within one ring of a point store's cell to the stores it may be near, so a ping
+ * needs a single cell computation and one primitive lookup to find the stores worth a distance check.
+ */
+public class StoreCellIndex {
+
+    private static final Store[] NO_STORES = new Store[0];
+
+    private final LongObjectHashMap<Store[]> candidates;
+
+    StoreCellIndex(LongObjectHashMap<Store[]> candidates) {
+        this.candidates = candidates;
+    }
+
+    public static StoreCellIndex build(H3Core h3Core, List<Store> stores, int resolution) {
+        LongObjectHashMap<List<Store>> cells = new LongObjectHashMap<>(stores.size() * 7);
+        List<Long> keys = new ArrayList<>();
+        for (Store store : stores) {
+            if (store.hasPolygon()) {
+                continue; // handled by the geofence index
+            }
+            long storeCell = h3Core.latLngToCell(store.getLat(), store.getLng(), resolution);
+            Set<Long> disk = new LinkedHashSet<>();
+            disk.add(storeCell);
+            disk.addAll(h3Core.gridDisk(storeCell, 1));
+            for (long cell : disk) {
+                List<Store> cellStores = cells.get(cell);
+                if (cellStores == null) {
+                    cellStores = new ArrayList<>();
+                    cells.put(cell, cellStores);
+                    keys.add(cell);
+                }
+                cellStores.add(store);
+            }
+        }
+
+        LongObjectHashMap<Store[]> candidates = new LongObjectHashMap<>(keys.size());
+        for (long cell : keys) {
+            candidates.put(cell, cells.get(cell).toArray(NO_STORES));
+        }
+        return new StoreCellIndex(candidates);
+    }
+
+    public Store[] getCandidates(long cell) {
+        Store[] stores = candidates.get(cell);
+        return stores == null ? NO_STORES : stores;
+    }
+
+    public int size() {
+        return candidates.size();
+    }
+
+    void forEachCell(LongConsumer action) {
+        candidates.forEachKey(action);
+    }
+}
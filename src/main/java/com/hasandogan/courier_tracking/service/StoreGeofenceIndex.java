@@ -0,0 +1,90 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.GeoPoint;
+import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.util.LongObjectHashMap;
+import com.hasandogan.courier_tracking.util.PolygonUtil;
+import com.uber.h3core.H3Core;
+import com.uber.h3core.util.LatLng;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * H3 polyfill of polygon geofences. Cells whose whole neighbourhood lies inside a polygon are
+ * interior and match without further work; cells on the edge need an exact point-in-polygon test.
+ */
+public class StoreGeofenceIndex {
+
+    private final LongObjectHashMap<List<Store>> interiorCells = new LongObjectHashMap<>();
+    private final LongObjectHashMap<List<Store>> boundaryCells = new LongObjectHashMap<>();
+
+    public static StoreGeofenceIndex build(H3Core h3Core, List<Store> stores, int resolution) {
+        StoreGeofenceIndex index = new StoreGeofenceIndex();
+        for (Store store : stores) {
+            if (store.hasPolygon()) {
+                index.add(h3Core, store, resolution);
+            }
+        }
+        return index;
+    }
+
+    private void add(H3Core h3Core, Store store, int resolution) {
+        List<LatLng> points = new ArrayList<>();
+        for (GeoPoint point : store.getPolygon()) {
+            points.add(new LatLng(point.getLat(), point.getLng()));
+        }
+        Set<Long> filled = new HashSet<>(h3Core.polygonToCells(points, Collections.emptyList(), resolution));
+
+        Set<Long> interior = new HashSet<>();
+        Set<Long> boundary = new HashSet<>();
+        // Polygons smaller than a cell may not fill any cell, so the vertices always seed the boundary
+        for (LatLng point : points) {
+            boundary.add(h3Core.latLngToCell(point.lat, point.lng, resolution));
+        }
+        for (Long cell : filled) {
+            List<Long> neighbors = h3Core.gridDisk(cell, 1);
+            if (filled.containsAll(neighbors) && !boundary.contains(cell)) {
+                interior.add(cell);
+            } else {
+                boundary.addAll(neighbors);
+            }
+        }
+        boundary.removeAll(interior);
+
+        for (Long cell : interior) {
+            interiorCells.computeIfAbsent(cell, k -> new ArrayList<>()).add(store);
+        }
+        for (Long cell : boundary) {
+            boundaryCells.computeIfAbsent(cell, k -> new ArrayList<>()).add(store);
+        }
+    }
+
+    public boolean covers(long cell) {
+        return interiorCells.containsKey(cell) || boundaryCells.containsKey(cell);
+    }
+
+    public List<Store> findContaining(long cell, double lat, double lng) {
+        List<Store> interior = interiorCells.get(cell);
+        List<Store> boundary = boundaryCells.get(cell);
+        if (boundary == null) {
+            return interior == null ? Collections.emptyList() : interior;
+        }
+        List<Store> result = interior == null ? new ArrayList<>() : new ArrayList<>(interior);
+        for (Store store : boundary) {
+            if (PolygonUtil.contains(store.getPolygon(), lat, lng)) {
+                result.add(store);
+            }
+        }
+        return result;
+    }
+
+    public void forEachCell(LongConsumer action) {
+        interiorCells.forEachKey(action);
+        boundaryCells.forEachKey(action);
+    }
+
+    public boolean isEmpty() {
+        return interiorCells.isEmpty() && boundaryCells.isEmpty();
+    }
+}
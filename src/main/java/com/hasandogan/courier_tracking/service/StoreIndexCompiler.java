@@ -0,0 +1,56 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.Store;
+import com.uber.h3core.H3Core;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Build-time step that compiles {@code stores.json} into a {@link BinaryStoreIndex}, run by Maven in
+ * the {@code process-classes} phase. Never fails the build: if H3 is unavailable or the catalogue has
+ * polygon geofences, no index is written and the service indexes {@code stores.json} at startup as before.
+ */
+public class StoreIndexCompiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoreIndexCompiler.class);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: StoreIndexCompiler <stores.json> <stores.idx>");
+        }
+        Path source = Paths.get(args[0]);
+        Path target = Paths.get(args[1]);
+        Files.deleteIfExists(target);
+
+        byte[] json = Files.readAllBytes(source);
+        List<Store> stores = Arrays.asList(new ObjectMapper().readValue(json, Store[].class));
+        if (stores.stream().anyMatch(Store::hasPolygon)) {
+            logger.warn("Polygon geofences are not compiled; {} will be indexed at startup", source);
+            return;
+        }
+
+        H3Core h3Core;
+        try {
+            h3Core = H3Core.newInstance();
+        } catch (IOException | RuntimeException | UnsatisfiedLinkError e) {
+            logger.warn("H3 is not available at build time, skipping binary store index: {}", e.getMessage());
+            return;
+        }
+        compile(h3Core, json, stores, target);
+    }
+
+    static void compile(H3Core h3Core, byte[] json, List<Store> stores, Path target) throws IOException {
+        StoreCellIndex cellIndex = StoreCellIndex.build(h3Core, stores, CourierLocationService.H3_RESOLUTION);
+        StorePrefilter prefilter = StorePrefilter.build(h3Core, stores, null, CourierLocationService.PREFILTER_RESOLUTION);
+        BinaryStoreIndex.write(target, json, stores, cellIndex, prefilter, CourierLocationService.H3_RESOLUTION);
+        logger.info("Compiled {} stores and {} H3 cells into {}", stores.size(), cellIndex.size(), target);
+    }
+}
@@ -0,0 +1,66 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.util.LongHashSet;
+import com.uber.h3core.H3Core;
+
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of coarse H3 cells covering every store's detection area. A ping whose coarse cell is not in
+ * the set cannot be near any store, so it skips the fine-resolution detection altogether.
+ */
+public class StorePrefilter {
+
+    private final LongHashSet coarseCells;
+    private final int resolution;
+
+    StorePrefilter(LongHashSet coarseCells, int resolution) {
+        this.coarseCells = coarseCells;
+        this.resolution = resolution;
+    }
+
+    public static StorePrefilter build(H3Core h3Core, List<Store> stores, StoreGeofenceIndex geofences, int resolution) {
+        LongHashSet coarseCells = new LongHashSet(stores.size() * 7);
+        // One ring around the coarse cell covers the 100 m radius: resolution 6-7 cells are kilometres wide
+        for (Store store : stores) {
+            if (!store.hasPolygon()) {
+                addWithRing(h3Core, coarseCells, h3Core.latLngToCell(store.getLat(), store.getLng(), resolution));
+            }
+        }
+        // H3 children are not strictly inside their parent, so the ring is kept for geofence cells as well
+        if (geofences != null) {
+            geofences.forEachCell(cell -> {
+                long parent = h3Core.cellToParent(cell, resolution);
+                if (!coarseCells.contains(parent)) {
+                    addWithRing(h3Core, coarseCells, parent);
+                }
+            });
+        }
+        return new StorePrefilter(coarseCells, resolution);
+    }
+
+    private static void addWithRing(H3Core h3Core, LongHashSet coarseCells, long cell) {
+        coarseCells.add(cell);
+        for (Long neighbor : h3Core.gridDisk(cell, 1)) {
+            coarseCells.add(neighbor);
+        }
+    }
+
+    public boolean mayBeNearStore(long coarseCell) {
+        return coarseCells.contains(coarseCell);
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public int size() {
+        return coarseCells.size();
+    }
+
+    void forEachCell(LongConsumer action) {
+        coarseCells.forEach(action);
+    }
+}
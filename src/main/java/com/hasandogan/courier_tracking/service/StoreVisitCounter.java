@@ -0,0 +1,176 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.StoreVisitCount;
+import com.hasandogan.courier_tracking.model.VisitBucket;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pre-aggregated per-store visit counters over rolling time buckets.
+ * Each store keeps one circular array of {@link LongAdder}s per granularity, so recording a visit
+ * is lock-free and queries cost O(buckets) regardless of how many visits were recorded.
+ */
+public class StoreVisitCounter {
+
+    public enum Granularity {
+        FIVE_MINUTES(5, 288),   // last 24 hours
+        HOUR(60, 168),          // last 7 days
+        DAY(24 * 60, 90);       // last 90 days
+
+        private final long minutes;
+        private final int buckets;
+
+        Granularity(long minutes, int buckets) {
+            this.minutes = minutes;
+            this.buckets = buckets;
+        }
+
+        public int getBuckets() {
+            return buckets;
+        }
+
+        long bucketOf(LocalDateTime time) {
+            return time.toEpochSecond(ZoneOffset.UTC) / 60 / minutes;
+        }
+
+        LocalDateTime startOf(long bucket) {
+            return LocalDateTime.ofEpochSecond(bucket * minutes * 60, 0, ZoneOffset.UTC);
+        }
+    }
+
+    private final Map<String, Map<Granularity, RollingCounter>> counters = new ConcurrentHashMap<>();
+    private final Map<Granularity, AtomicLong> latestBucket = new EnumMap<>(Granularity.class);
+
+    public StoreVisitCounter() {
+        for (Granularity granularity : Granularity.values()) {
+            latestBucket.put(granularity, new AtomicLong(Long.MIN_VALUE));
+        }
+    }
+
+    public void recordVisit(String storeName, LocalDateTime time) {
+        Map<Granularity, RollingCounter> storeCounters = counters.computeIfAbsent(storeName, k -> createCounters());
+        for (Granularity granularity : Granularity.values()) {
+            long bucket = granularity.bucketOf(time);
+            storeCounters.get(granularity).increment(bucket);
+            latestBucket.get(granularity).accumulateAndGet(bucket, Math::max);
+        }
+    }
+
+    /**
+     * Returns the stores with the most visits in the last {@code buckets} buckets of the given granularity,
+     * counting back from the most recent bucket that has seen a visit.
+     */
+    public List<StoreVisitCount> getTopStores(Granularity granularity, int buckets, int limit) {
+        long latest = latestBucket.get(granularity).get();
+        List<StoreVisitCount> result = new ArrayList<>();
+        if (latest == Long.MIN_VALUE) {
+            return result;
+        }
+        int window = clampWindow(granularity, buckets);
+        for (Map.Entry<String, Map<Granularity, RollingCounter>> entry : counters.entrySet()) {
+            long visits = entry.getValue().get(granularity).sum(latest - window + 1, latest);
+            if (visits > 0) {
+                result.add(new StoreVisitCount(entry.getKey(), visits));
+            }
+        }
+        result.sort(Comparator.comparingLong(StoreVisitCount::getVisits).reversed()
+                .thenComparing(StoreVisitCount::getStoreName));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Returns the visit counts of a store for the last {@code buckets} buckets, oldest first.
+     */
+    public List<VisitBucket> getTimeSeries(String storeName, Granularity granularity, int buckets) {
+        long latest = latestBucket.get(granularity).get();
+        List<VisitBucket> series = new ArrayList<>();
+        if (latest == Long.MIN_VALUE) {
+            return series;
+        }
+        Map<Granularity, RollingCounter> storeCounters = counters.get(storeName);
+        int window = clampWindow(granularity, buckets);
+        for (long bucket = latest - window + 1; bucket <= latest; bucket++) {
+            long visits = storeCounters == null ? 0 : storeCounters.get(granularity).get(bucket);
+            series.add(new VisitBucket(granularity.startOf(bucket), visits));
+        }
+        return series;
+    }
+
+    private static int clampWindow(Granularity granularity, int buckets) {
+        return Math.max(1, Math.min(buckets, granularity.getBuckets()));
+    }
+
+    private static Map<Granularity, RollingCounter> createCounters() {
+        Map<Granularity, RollingCounter> storeCounters = new EnumMap<>(Granularity.class);
+        for (Granularity granularity : Granularity.values()) {
+            storeCounters.put(granularity, new RollingCounter(granularity.getBuckets()));
+        }
+        return storeCounters;
+    }
+
+    /**
+     * Circular array of adders. Each slot pairs a bucket with its own adder; the first writer of a newer
+     * bucket swaps in a fresh slot with a CAS, so a count can never be reset under a concurrent increment
+     * or read under the wrong bucket. Older buckets are dropped.
+     */
+    static final class RollingCounter {
+
+        private final AtomicReferenceArray<Slot> slots;
+
+        RollingCounter(int size) {
+            slots = new AtomicReferenceArray<>(size);
+        }
+
+        void increment(long bucket) {
+            int index = (int) Math.floorMod(bucket, (long) slots.length());
+            while (true) {
+                Slot slot = slots.get(index);
+                if (slot != null && slot.bucket == bucket) {
+                    slot.adder.increment();
+                    return;
+                }
+                if (slot != null && slot.bucket > bucket) {
+                    return; // the bucket already rolled out of the window
+                }
+                Slot fresh = new Slot(bucket);
+                fresh.adder.increment();
+                if (slots.compareAndSet(index, slot, fresh)) {
+                    return;
+                }
+            }
+        }
+
+        long get(long bucket) {
+            Slot slot = slots.get((int) Math.floorMod(bucket, (long) slots.length()));
+            return slot != null && slot.bucket == bucket ? slot.adder.sum() : 0;
+        }
+
+        long sum(long fromBucket, long toBucket) {
+            long total = 0;
+            for (long bucket = fromBucket; bucket <= toBucket; bucket++) {
+                total += get(bucket);
+            }
+            return total;
+        }
+    }
+
+    private static final class Slot {
+
+        final long bucket;
+        final LongAdder adder = new LongAdder();
+
+        Slot(long bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.ExportSummary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes every courier's trajectory in a columnar binary format, big-endian:
+ * <pre>
+ * header: int magic "CTTR", int version
+ * blocks: per courier: long[pointCount] time (epoch nanos, UTC; Long.MIN_VALUE if unknown),
+ *         double[pointCount] latitude, double[pointCount] longitude
+ * index:  per courier: int idLength, id (UTF-8), int pointCount, long blockOffset
+ * footer: long indexOffset, int courierCount, int magic "CTTR"
+ * </pre>
+ * Couriers are written in id order and points in stored order. The index trails the blocks and the fixed-size
+ * footer points at it, so the export is written front to back in one pass and can go straight to a socket.
+ * Each block is encoded under the courier's lock into a reused direct buffer and written to the channel outside
+ * of it, so the export keeps at most one courier's columns off-heap and never a copy of the dataset on the heap.
+ * Not thread-safe.
+ */
+final class TrajectoryExporter {
+
+    static final int MAGIC = 0x43545452; // "CTTR"
+    static final int VERSION = 2;
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    static final int HEADER_BYTES = 2 * 4;
+    static final int FOOTER_BYTES = 8 + 2 * 4;
+
+    private static final int INITIAL_BLOCK_BYTES = 64 * 1024;
+    // Largest buffer the JVM hands out; a courier block or the trailer beyond it cannot be encoded
+    private static final int MAX_BUFFER_BYTES = Integer.MAX_VALUE - 8;
+
+    private ByteBuffer block = ByteBuffer.allocateDirect(INITIAL_BLOCK_BYTES);
+
+    /**
+     * Writes the export to the channel in order. File and elapsed time are left to the caller.
+     */
+    ExportSummary write(Map<String, List<CourierLocation>> courierLocations, WritableByteChannel channel)
+            throws IOException {
+        List<String> courierIds = new ArrayList<>(courierLocations.keySet());
+        Collections.sort(courierIds);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        long position = writeFully(channel, header);
+
+        int[] pointCounts = new int[courierIds.size()];
+        long[] offsets = new long[courierIds.size()];
+        long points = 0;
+        for (int i = 0; i < pointCounts.length; i++) {
+            List<CourierLocation> locations = courierLocations.get(courierIds.get(i));
+            synchronized (locations) {
+                pointCounts[i] = encode(courierIds.get(i), locations);
+            }
+            offsets[i] = position;
+            position += writeFully(channel, block);
+            points += pointCounts[i];
+        }
+
+        byte[][] ids = new byte[courierIds.size()][];
+        long trailerBytes = FOOTER_BYTES;
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = courierIds.get(i).getBytes(StandardCharsets.UTF_8);
+            trailerBytes += 4 + ids[i].length + 4 + 8;
+        }
+        if (trailerBytes > MAX_BUFFER_BYTES) {
+            throw new IOException("Export index of " + ids.length + " couriers exceeds " + MAX_BUFFER_BYTES + " bytes");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate((int) trailerBytes);
+        for (int i = 0; i < ids.length; i++) {
+            trailer.putInt(ids[i].length).put(ids[i]).putInt(pointCounts[i]).putLong(offsets[i]);
+        }
+        trailer.putLong(position).putInt(ids.length).putInt(MAGIC).flip();
+        position += writeFully(channel, trailer);
+
+        return new ExportSummary(null, ids.length, points, position, 0);
+    }
+
+    // Fills the block buffer with the three columns and returns the point count
+    private int encode(String courierId, List<CourierLocation> locations) throws IOException {
+        int count = locations.size();
+        long bytes = count * 3L * 8;
+        if (bytes > MAX_BUFFER_BYTES) {
+            throw new IOException("Trajectory of courier " + courierId + " has " + count
+                    + " points, more than one export block holds");
+        }
+        if (block.capacity() < bytes) {
+            block = ByteBuffer.allocateDirect((int) Math.min(MAX_BUFFER_BYTES, Math.max(bytes, 2L * block.capacity())));
+        }
+        block.clear().limit((int) bytes);
+        int latitudes = count * 8;
+        int longitudes = count * 16;
+        for (int i = 0; i < count; i++) {
+            CourierLocation location = locations.get(i);
+            LocalDateTime time = location.getTime();
+            block.putLong(i * 8, time == null ? NO_TIME
+                    : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano());
+            block.putDouble(latitudes + i * 8, location.getLatitude());
+            block.putDouble(longitudes + i * 8, location.getLongitude());
+        }
+        return count;
+    }
+
+    private static int writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,45 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierReport;
+import com.hasandogan.courier_tracking.util.DistanceCalculator;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running report totals of a courier, kept in place of the trajectory by services that do not store pings
+ * (offline replays). Adds up the same rounded distances in the same arrival order as a report over the
+ * stored list, so both give equal numbers. Thread-safe.
+ */
+final class TrajectorySummary {
+
+    private boolean hasLast;
+    private double lastLat;
+    private double lastLng;
+
+    private double distance;
+    private int pointCount;
+    private LocalDateTime firstSeen;
+    private LocalDateTime lastSeen;
+
+    synchronized void add(double lat, double lng, LocalDateTime time, DistanceCalculator distanceCalculator) {
+        if (hasLast) {
+            distance += distanceCalculator.calculateDistance(lastLat, lastLng, lat, lng);
+        }
+        hasLast = true;
+        lastLat = lat;
+        lastLng = lng;
+        pointCount++;
+        if (time != null) {
+            if (firstSeen == null || time.isBefore(firstSeen)) {
+                firstSeen = time;
+            }
+            if (lastSeen == null || time.isAfter(lastSeen)) {
+                lastSeen = time;
+            }
+        }
+    }
+
+    synchronized CourierReport toReport(String courierId, long storeVisits) {
+        return new CourierReport(courierId, distance, pointCount, firstSeen, lastSeen, storeVisits);
+    }
+}
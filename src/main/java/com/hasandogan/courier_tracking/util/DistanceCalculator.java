@@ -8,6 +8,15 @@ public class DistanceCalculator {
     private static final double EARTH_RADIUS_KM = 6371;
 
     public double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+        // Round the result to two decimal places
+        BigDecimal roundedDistance = new BigDecimal(haversineMeters(lat1, lon1, lat2, lon2)).setScale(2, RoundingMode.HALF_UP);
+        return roundedDistance.doubleValue();
+    }
+
+    /**
+     * Unrounded great-circle distance in meters, for per-ping hot paths that do not need two decimals.
+     */
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
         // Convert latitude and longitude differences to radians
         double deltaLatitude = Math.toRadians(lat2 - lat1);
         double deltaLongitude = Math.toRadians(lon2 - lon1);
@@ -20,10 +29,6 @@ public class DistanceCalculator {
         // Calculate the great-circle distance
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
         double distanceInKilometers = EARTH_RADIUS_KM * c;
-        double distanceInMeters = distanceInKilometers * 1000;
-
-        // Round the result to two decimal places
-        BigDecimal roundedDistance = new BigDecimal(distanceInMeters).setScale(2, RoundingMode.HALF_UP);
-        return roundedDistance.doubleValue();
+        return distanceInKilometers * 1000;
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.hasandogan.courier_tracking.util;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing set of primitive {@code long} values, so membership probes by H3 cell never box.
+ * Not thread-safe; the indexes that use it are built once and only read afterwards.
+ */
+public class LongHashSet {
+
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private int size;
+    private boolean hasFreeKey;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        keys = new long[Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1];
+    }
+
+    public boolean contains(long key) {
+        if (key == FREE) {
+            return hasFreeKey;
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return true;
+            }
+            if (current == FREE) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public boolean add(long key) {
+        if (key == FREE) {
+            boolean added = !hasFreeKey;
+            if (added) {
+                size++;
+            }
+            hasFreeKey = true;
+            return added;
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return false;
+            }
+            if (current == FREE) {
+                keys[index] = key;
+                if (++size * 2 > keys.length) {
+                    resize();
+                }
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public void forEach(LongConsumer action) {
+        if (hasFreeKey) {
+            action.accept(FREE);
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        keys = new long[oldKeys.length * 2];
+        size = hasFreeKey ? 1 : 0;
+        for (long key : oldKeys) {
+            if (key != FREE) {
+                add(key);
+            }
+        }
+    }
+
+    // Same mixing as LongObjectHashMap: H3 indexes share most of their high and low bits
+    private static int mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
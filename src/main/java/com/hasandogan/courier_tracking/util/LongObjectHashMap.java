@@ -0,0 +1,137 @@
+package com.hasandogan.courier_tracking.util;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing map from primitive {@code long} keys to objects, so lookups by H3 cell never box.
+ * Not thread-safe; the indexes that use it are built once and only read afterwards.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : null;
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return (V) values[index];
+            }
+            if (current == FREE) {
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == FREE) {
+            V previous = freeKeyValue;
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return previous;
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            if (current == FREE) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size * 2 > keys.length) {
+                    resize();
+                }
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public void forEachKey(LongConsumer action) {
+        if (hasFreeKey) {
+            action.accept(FREE);
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        size = hasFreeKey ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    // H3 indexes share most of their high and low bits (mode, resolution, unused digits), so mix them all
+    private static int mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
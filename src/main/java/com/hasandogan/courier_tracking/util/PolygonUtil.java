@@ -0,0 +1,25 @@
+package com.hasandogan.courier_tracking.util;
+
+import com.hasandogan.courier_tracking.model.GeoPoint;
+
+import java.util.List;
+
+public final class PolygonUtil {
+
+    private PolygonUtil() {
+    }
+
+    public static boolean contains(List<GeoPoint> polygon, double lat, double lng) {
+        // Ray casting on the lat/lng plane, good enough for store-sized polygons
+        boolean inside = false;
+        for (int i = 0, j = polygon.size() - 1; i < polygon.size(); j = i++) {
+            GeoPoint a = polygon.get(i);
+            GeoPoint b = polygon.get(j);
+            if ((a.getLat() > lat) != (b.getLat() > lat)
+                    && lng < (b.getLng() - a.getLng()) * (lat - a.getLat()) / (b.getLat() - a.getLat()) + a.getLng()) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
@@ -9,10 +9,10 @@ import java.util.Collections;
 
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.when;
 
-@SpringBootTest
+@SpringBootTest(properties = "courier.entrance-log.directory=target/entrances")
 class CourierTrackingApplicationTests {
 
 	@MockBean
@@ -21,8 +21,8 @@ class CourierTrackingApplicationTests {
 	@Test
 	void contextLoads() {
 		// Mock H3Core methods to prevent NullPointerException
-		when(h3Core.latLngToCellAddress(anyDouble(), anyDouble(), anyInt())).thenReturn("testH3Index");
-		when(h3Core.gridDisk(anyString(), anyInt())).thenReturn(Collections.emptyList());
+		when(h3Core.latLngToCell(anyDouble(), anyDouble(), anyInt())).thenReturn(0x8b1ec5b3c3a1fffL);
+		when(h3Core.gridDisk(anyLong(), anyInt())).thenReturn(Collections.emptyList());
 	}
 
 }
@@ -2,29 +2,45 @@ package com.hasandogan.courier_tracking.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.CourierReport;
+import com.hasandogan.courier_tracking.model.DistanceWindow;
 import com.hasandogan.courier_tracking.service.CourierLocationService;
+import com.hasandogan.courier_tracking.service.IngestGate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CourierLocationController.class)
+@Import(IngestGate.class)
 public class CourierLocationControllerTest {
 
     @Autowired
@@ -104,4 +120,144 @@ public class CourierLocationControllerTest {
 
         verify(courierLocationService).getCourierLocations("courier123");
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testGetFleetReport() throws Exception {
+        CourierReport report = new CourierReport("courier123", 11180.91, 2,
+                atasehirLocation.getTime(), ortakoyLocation.getTime(), 2);
+        doAnswer(invocation -> {
+            Consumer<CourierReport> consumer = invocation.getArgument(1);
+            consumer.accept(report);
+            return null;
+        }).when(courierLocationService).forEachCourierReport(any(), any());
+
+        MvcResult result = mockMvc.perform(get("/api/couriers/report"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(objectMapper.writeValueAsString(report) + "\n"));
+    }
+
+    @Test
+    public void testRegisterLocation_RateLimited() throws Exception {
+        // Default burst is 100 pings per client
+        for (int i = 0; i < 100; i++) {
+            mockMvc.perform(post("/api/couriers/location")
+                            .header("X-Client-Id", "device-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(atasehirLocation)))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(post("/api/couriers/location")
+                        .header("X-Client-Id", "device-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(atasehirLocation)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+
+        // Other clients are not affected
+        mockMvc.perform(post("/api/couriers/location")
+                        .header("X-Client-Id", "device-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(atasehirLocation)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testGetTotalDistance_NotModified() throws Exception {
+        when(courierLocationService.getCourierVersion("courier-etag")).thenReturn(5L);
+
+        mockMvc.perform(get("/api/couriers/courier-etag/distance").header("If-None-Match", RenderedBodyCache.eTagOf(5)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", RenderedBodyCache.eTagOf(5)));
+
+        verify(courierLocationService, never()).getTotalTravelDistanceOfCourier("courier-etag");
+    }
+
+    @Test
+    public void testGetTotalDistance_TagFromEarlierProcessDoesNotMatch() throws Exception {
+        when(courierLocationService.getCourierVersion("courier-etag")).thenReturn(5L);
+        when(courierLocationService.getTotalTravelDistanceOfCourier("courier-etag")).thenReturn("0,10 km");
+
+        // Versions restart with the process, a bare version from before a restart must not give a 304
+        mockMvc.perform(get("/api/couriers/courier-etag/distance").header("If-None-Match", "\"5\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0,10 km"));
+    }
+
+    @Test
+    public void testGetTotalDistance_RenderedOncePerVersion() throws Exception {
+        when(courierLocationService.getCourierVersion("courier-cached")).thenReturn(3L);
+        when(courierLocationService.getTotalTravelDistanceOfCourier("courier-cached")).thenReturn("1,50 km");
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/couriers/courier-cached/distance"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", RenderedBodyCache.eTagOf(3)))
+                    .andExpect(content().string("1,50 km"));
+        }
+
+        verify(courierLocationService, times(1)).getTotalTravelDistanceOfCourier("courier-cached");
+    }
+
+    @Test
+    public void testGetCourierLocations_NotModified() throws Exception {
+        when(courierLocationService.getCourierVersion("courier-etag")).thenReturn(7L);
+
+        mockMvc.perform(get("/api/couriers/courier-etag/locations").header("If-None-Match", RenderedBodyCache.eTagOf(7)))
+                .andExpect(status().isNotModified());
+
+        verify(courierLocationService, never()).getCourierLocations("courier-etag");
+    }
+
+    @Test
+    public void testGetDistanceBetween() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 22, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 3, 22, 12, 30);
+        when(courierLocationService.getTravelDistanceBetween("courier123", from, to))
+                .thenReturn(new DistanceWindow("courier123", from, to, 11180.91, 2));
+
+        mockMvc.perform(get("/api/couriers/courier123/distance/window")
+                        .param("from", "2025-03-22T10:00:00")
+                        .param("to", "2025-03-22T12:30:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distance").value(11180.91))
+                .andExpect(jsonPath("$.pointCount").value(2));
+    }
+
+    @Test
+    public void testGetDistanceBetween_UnknownCourierOrReversedWindow() throws Exception {
+        mockMvc.perform(get("/api/couriers/unknown/distance/window")
+                        .param("from", "2025-03-22T10:00:00")
+                        .param("to", "2025-03-22T12:30:00"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/couriers/courier123/distance/window")
+                        .param("from", "2025-03-22T12:30:00")
+                        .param("to", "2025-03-22T10:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testExportTrajectories() throws Exception {
+        // An empty export: header, no blocks, footer pointing at the empty index
+        byte[] export = {'C', 'T', 'T', 'R', 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 8, 0, 0, 0, 0, 'C', 'T', 'T', 'R'};
+        doAnswer(invocation -> {
+            WritableByteChannel target = invocation.getArgument(0);
+            target.write(ByteBuffer.wrap(export));
+            return null;
+        }).when(courierLocationService).exportTrajectories(any(WritableByteChannel.class));
+
+        MvcResult result = mockMvc.perform(get("/api/couriers/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .andExpect(content().bytes(export));
+    }
+}
@@ -0,0 +1,124 @@
+package com.hasandogan.courier_tracking.controller;
+
+import com.hasandogan.courier_tracking.CourierTrackingApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares ingest on Tomcat (servlet) and Netty (reactive) while a fleet of slow devices keeps
+ * connections open with a half-sent body: the servlet stack parks a worker thread on each of them,
+ * the reactive stack none. Reports server threads and throughput of the remaining clients.
+ * Run with {@code mvn test -Dtest=IngestStackBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class IngestStackBenchmarkTest {
+
+    private static final int SLOW_CONNECTIONS = 400;
+    private static final int REQUESTS = 20_000;
+    private static final int CONCURRENCY = 64;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void benchmarkServletAgainstReactive() throws Exception {
+        run("servlet");
+        run("reactive");
+    }
+
+    private void run(String mode) throws Exception {
+        int baselineThreads = threads.getThreadCount();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CourierTrackingApplication.class)
+                .properties("server.port=0",
+                        "spring.main.web-application-type=" + mode,
+                        "courier.entrance-log.directory=target/benchmark-entrances",
+                        "courier.ingest.client-rate-per-second=1000000",
+                        "courier.ingest.client-burst=1000000",
+                        "logging.level.com.hasandogan.courier_tracking=WARN")
+                .run()) {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            // Warm up both the server and the client
+            send(client, port, 2_000);
+
+            List<Socket> slowDevices = openSlowDevices(port);
+            try {
+                Thread.sleep(1_000);
+                int threadsWithSlowDevices = threads.getThreadCount();
+                long start = System.nanoTime();
+                long failed = send(client, port, REQUESTS);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%s: %d slow connections held, %d live threads (%d before start), "
+                                + "%.0f req/s for %d other requests, %d failed%n",
+                        mode, slowDevices.size(), threadsWithSlowDevices, baselineThreads,
+                        REQUESTS / seconds, REQUESTS, failed);
+            } finally {
+                for (Socket socket : slowDevices) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    // Each device sends the headers and the first byte of its body, then goes quiet
+    private static List<Socket> openSlowDevices(int port) throws IOException {
+        List<Socket> sockets = new ArrayList<>(SLOW_CONNECTIONS);
+        for (int i = 0; i < SLOW_CONNECTIONS; i++) {
+            Socket socket = new Socket("localhost", port);
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(("POST /api/couriers/location HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "X-Client-Id: slow-device-" + i + "\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: 200\r\n\r\n{").getBytes(StandardCharsets.US_ASCII));
+            outputStream.flush();
+            sockets.add(socket);
+        }
+        return sockets;
+    }
+
+    private static long send(HttpClient client, int port, int requests) throws InterruptedException {
+        Semaphore permits = new Semaphore(CONCURRENCY);
+        LongAdder failed = new LongAdder();
+        List<CompletableFuture<?>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            String body = String.format("{\"time\":\"2025-03-22T10:%02d:%02d\",\"courierId\":\"courier-%d\","
+                    + "\"latitude\":40.9923307,\"longitude\":29.1244229}", (i / 60) % 60, i % 60, i % 1_000);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/couriers/location"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .header("X-Client-Id", "device-" + (i % 1_000))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            permits.acquire();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || response.statusCode() >= 300) {
+                            failed.increment();
+                        }
+                        permits.release();
+                    }));
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        return failed.sum();
+    }
+}
@@ -0,0 +1,219 @@
+package com.hasandogan.courier_tracking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.CourierReport;
+import com.hasandogan.courier_tracking.service.CourierLocationService;
+import com.hasandogan.courier_tracking.service.IngestGate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveCourierLocationController.class)
+@Import(IngestGate.class)
+public class ReactiveCourierLocationControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private CourierLocationService courierLocationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private CourierLocation atasehirLocation;
+    private CourierLocation ortakoyLocation;
+
+    @BeforeEach
+    public void setup() {
+        atasehirLocation = new CourierLocation(
+                LocalDateTime.of(2025, 3, 22, 10, 0),
+                "courier123",
+                40.9923307,
+                29.1244229
+        );
+
+        ortakoyLocation = new CourierLocation(
+                LocalDateTime.of(2025, 3, 22, 11, 0),
+                "courier123",
+                41.055783,
+                29.0210292
+        );
+    }
+
+    @Test
+    public void testRegisterLocation() {
+        webTestClient.post().uri("/api/couriers/location")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(atasehirLocation)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Location processed successfully");
+
+        verify(courierLocationService).processLocation(any(CourierLocation.class));
+    }
+
+    @Test
+    public void testRegisterLocation_ProcessedOffTheEventLoop() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return null;
+        }).when(courierLocationService).processLocation(any(CourierLocation.class));
+
+        webTestClient.post().uri("/api/couriers/location")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(atasehirLocation)
+                .exchange()
+                .expectStatus().isOk();
+
+        assertTrue(thread.get().startsWith("boundedElastic"), "Processed on " + thread.get());
+    }
+
+    @Test
+    public void testRegisterLocations_StreamsOneAdmissionPerPing() throws Exception {
+        String body = objectMapper.writeValueAsString(atasehirLocation) + "\n"
+                + objectMapper.writeValueAsString(ortakoyLocation) + "\n";
+
+        List<IngestGate.Admission> admissions = webTestClient.post().uri("/api/couriers/locations")
+                .header("X-Client-Id", "device-batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(IngestGate.Admission.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(List.of(IngestGate.Admission.ACCEPTED, IngestGate.Admission.ACCEPTED), admissions);
+        verify(courierLocationService, times(2)).processLocation(any(CourierLocation.class));
+    }
+
+    @Test
+    public void testRegisterLocation_RateLimited() {
+        // Default burst is 100 pings per client
+        for (int i = 0; i < 100; i++) {
+            webTestClient.post().uri("/api/couriers/location")
+                    .header("X-Client-Id", "device-1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(atasehirLocation)
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        webTestClient.post().uri("/api/couriers/location")
+                .header("X-Client-Id", "device-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(atasehirLocation)
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "1");
+    }
+
+    @Test
+    public void testGetTotalDistance() {
+        when(courierLocationService.getCourierVersion("courier123")).thenReturn(2L);
+        when(courierLocationService.getTotalTravelDistanceOfCourier("courier123")).thenReturn("12.34 km");
+
+        webTestClient.get().uri("/api/couriers/courier123/distance")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", RenderedBodyCache.eTagOf(2))
+                .expectBody(String.class).isEqualTo("12.34 km");
+    }
+
+    @Test
+    public void testGetTotalDistance_NotModified() {
+        when(courierLocationService.getCourierVersion("courier-etag")).thenReturn(5L);
+
+        webTestClient.get().uri("/api/couriers/courier-etag/distance")
+                .header("If-None-Match", RenderedBodyCache.eTagOf(5))
+                .exchange()
+                .expectStatus().isNotModified();
+
+        verify(courierLocationService, never()).getTotalTravelDistanceOfCourier("courier-etag");
+    }
+
+    @Test
+    public void testGetCourierLocations_WhenLocationsExist() throws Exception {
+        List<CourierLocation> locations = List.of(atasehirLocation, ortakoyLocation);
+        when(courierLocationService.getCourierVersion("courier123")).thenReturn(2L);
+        when(courierLocationService.getCourierLocations("courier123")).thenReturn(locations);
+
+        webTestClient.get().uri("/api/couriers/courier123/locations")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(String.class).isEqualTo(objectMapper.writeValueAsString(locations));
+    }
+
+    @Test
+    public void testGetFleetReport() {
+        CourierReport report = new CourierReport("courier123", 11180.91, 2,
+                atasehirLocation.getTime(), ortakoyLocation.getTime(), 2);
+        doAnswer(invocation -> {
+            Consumer<CourierReport> consumer = invocation.getArgument(1);
+            consumer.accept(report);
+            return null;
+        }).when(courierLocationService).forEachCourierReport(any(), any());
+
+        List<CourierReport> reports = webTestClient.get().uri("/api/couriers/report")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CourierReport.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(List.of(report), reports);
+    }
+
+    @Test
+    public void testExportTrajectories_StreamedWithoutFile() throws Exception {
+        // More than the pipe holds, so the encoder has to wait for the response
+        byte[] export = new byte[200 * 1024];
+        new Random(42).nextBytes(export);
+        doAnswer(invocation -> {
+            WritableByteChannel target = invocation.getArgument(0);
+            target.write(ByteBuffer.wrap(export));
+            return null;
+        }).when(courierLocationService).exportTrajectories(any(WritableByteChannel.class));
+
+        byte[] body = webTestClient.get().uri("/api/couriers/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+
+        assertArrayEquals(export, body);
+        verify(courierLocationService, never()).exportTrajectories(any(Path.class));
+    }
+}
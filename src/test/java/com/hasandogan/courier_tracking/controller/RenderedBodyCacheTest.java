@@ -0,0 +1,64 @@
+package com.hasandogan.courier_tracking.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderedBodyCacheTest {
+
+    @Test
+    public void testRendersOncePerVersion() {
+        RenderedBodyCache cache = new RenderedBodyCache();
+        AtomicInteger renders = new AtomicInteger();
+
+        Supplier<String> renderer = () -> "body" + renders.incrementAndGet();
+
+        assertEquals("body1", cache.get("courier1", 1, renderer));
+        assertEquals("body1", cache.get("courier1", 1, renderer));
+        assertEquals("body2", cache.get("courier1", 2, renderer));
+        assertEquals(2, renders.get());
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.chars());
+    }
+
+    @Test
+    public void testBoundedByEntries() {
+        RenderedBodyCache cache = new RenderedBodyCache(3, Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            cache.get("courier" + i, 1, () -> "body");
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(3 * 4, cache.chars());
+        // The body just rendered is never the one dropped
+        assertEquals("body", cache.get("courier99", 1, () -> "rendered again"));
+    }
+
+    @Test
+    public void testBoundedByLength() {
+        RenderedBodyCache cache = new RenderedBodyCache(100, 10);
+        cache.get("courier1", 1, () -> "12345");
+        cache.get("courier2", 1, () -> "12345");
+        cache.get("courier3", 1, () -> "12345");
+
+        assertTrue(cache.chars() <= 10);
+        assertEquals(2, cache.size());
+
+        // Too long to cache at all, and the stale body of the courier is dropped
+        assertEquals("12345678901", cache.get("courier3", 2, () -> "12345678901"));
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.chars());
+    }
+
+    @Test
+    public void testETagCarriesProcessEpoch() {
+        String eTag = RenderedBodyCache.eTagOf(5);
+
+        assertNotEquals("\"5\"", eTag);
+        assertTrue(eTag.startsWith("\"") && eTag.endsWith("-5\""));
+        assertEquals(eTag, RenderedBodyCache.eTagOf(5));
+    }
+}
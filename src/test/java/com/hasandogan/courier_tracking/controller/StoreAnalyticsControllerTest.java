@@ -0,0 +1,60 @@
+package com.hasandogan.courier_tracking.controller;
+
+import com.hasandogan.courier_tracking.model.StoreVisitCount;
+import com.hasandogan.courier_tracking.service.CourierLocationService;
+import com.hasandogan.courier_tracking.service.StoreVisitCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(StoreAnalyticsController.class)
+public class StoreAnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CourierLocationService courierLocationService;
+
+    @Test
+    public void testGetTopVisitedStores() throws Exception {
+        when(courierLocationService.getTopVisitedStores(StoreVisitCounter.Granularity.HOUR, 24, 1))
+                .thenReturn(List.of(new StoreVisitCount("Ataşehir MMM Migros", 3)));
+
+        mockMvc.perform(get("/api/stores/visits/top").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].storeName").value("Ataşehir MMM Migros"))
+                .andExpect(jsonPath("$[0].visits").value(3));
+    }
+
+    @Test
+    public void testGetTopVisitedStores_InvalidLimitOrBuckets() throws Exception {
+        mockMvc.perform(get("/api/stores/visits/top").param("limit", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/stores/visits/top").param("buckets", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(courierLocationService, never()).getTopVisitedStores(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testGetStoreVisitSeries_InvalidBuckets() throws Exception {
+        mockMvc.perform(get("/api/stores/{storeName}/visits", "Ataşehir MMM Migros").param("buckets", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(courierLocationService, never()).getStoreVisitSeries(any(), any(), anyInt());
+    }
+}
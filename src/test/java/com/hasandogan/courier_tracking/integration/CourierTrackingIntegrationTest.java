@@ -24,7 +24,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(classes = CourierTrackingApplication.class)
+@SpringBootTest(classes = CourierTrackingApplication.class, properties = "courier.entrance-log.directory=target/entrances")
 @AutoConfigureMockMvc
 public class CourierTrackingIntegrationTest {
 
@@ -40,8 +40,8 @@ public class CourierTrackingIntegrationTest {
     @BeforeEach
     public void setUp() {
         // Mock H3Core methods to prevent NullPointerException
-        when(h3Core.latLngToCellAddress(anyDouble(), anyDouble(), anyInt())).thenReturn("testH3Index");
-        when(h3Core.gridDisk(anyString(), anyInt())).thenReturn(Collections.emptyList());
+        when(h3Core.latLngToCell(anyDouble(), anyDouble(), anyInt())).thenReturn(0x8b1ec5b3c3a1fffL);
+        when(h3Core.gridDisk(anyLong(), anyInt())).thenReturn(Collections.emptyList());
     }
 
     @Test
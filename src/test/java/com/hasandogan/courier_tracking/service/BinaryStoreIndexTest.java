@@ -0,0 +1,128 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.Store;
+import com.uber.h3core.H3Core;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BinaryStoreIndexTest {
+
+    private static final long ATASEHIR_CELL = 0x8b1ec5b3c3a1fffL;
+    private static final long ORTAKOY_CELL = 0x8b1ec5b3c3a2fffL;
+    private static final long SHARED_CELL = 0x8b1ec5b3c3a3fffL;
+    private static final long COARSE_CELL = 0x871ec5b3fffffffL;
+    private static final long COARSE_NEIGHBOR = 0x871ec5b2fffffffL;
+
+    private static final byte[] STORES_JSON = "[{\"name\":\"Ataşehir MMM Migros\"}]".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private H3Core h3Core;
+
+    private Store atasehir;
+    private Store ortakoy;
+
+    @BeforeEach
+    public void setup() {
+        atasehir = createStore("Ataşehir MMM Migros", 40.9923307, 29.1244229);
+        ortakoy = createStore("Ortaköy MMM Migros", 41.055783, 29.0210292);
+
+        doReturn(ATASEHIR_CELL).when(h3Core).latLngToCell(eq(40.9923307), eq(29.1244229), eq(11));
+        doReturn(ORTAKOY_CELL).when(h3Core).latLngToCell(eq(41.055783), eq(29.0210292), eq(11));
+        doReturn(List.of(ATASEHIR_CELL, SHARED_CELL)).when(h3Core).gridDisk(ATASEHIR_CELL, 1);
+        doReturn(List.of(ORTAKOY_CELL, SHARED_CELL)).when(h3Core).gridDisk(ORTAKOY_CELL, 1);
+        doReturn(COARSE_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), eq(7));
+        doReturn(List.of(COARSE_CELL, COARSE_NEIGHBOR)).when(h3Core).gridDisk(COARSE_CELL, 1);
+    }
+
+    private Store createStore(String name, double lat, double lng) {
+        Store store = new Store();
+        store.setName(name);
+        store.setLat(lat);
+        store.setLng(lng);
+        return store;
+    }
+
+    @Test
+    public void testRoundTripKeepsStoresCellsAndPrefilter() throws IOException {
+        Path file = directory.resolve("stores.idx");
+        StoreIndexCompiler.compile(h3Core, STORES_JSON, List.of(atasehir, ortakoy), file);
+
+        BinaryStoreIndex index = BinaryStoreIndex.load(new FileSystemResource(file));
+
+        assertEquals(11, index.getResolution());
+        assertEquals(7, index.getPrefilterResolution());
+        assertEquals(List.of(atasehir, ortakoy), index.getStores());
+
+        StoreCellIndex cellIndex = index.getCellIndex();
+        assertEquals(3, cellIndex.size());
+        assertEquals("Ataşehir MMM Migros", cellIndex.getCandidates(ATASEHIR_CELL)[0].getName());
+        assertEquals("Ortaköy MMM Migros", cellIndex.getCandidates(ORTAKOY_CELL)[0].getName());
+        Store[] shared = cellIndex.getCandidates(SHARED_CELL);
+        assertEquals(2, shared.length);
+        // Stores are materialized once and shared between cells
+        assertSame(index.getStores().get(0), cellIndex.getCandidates(ATASEHIR_CELL)[0]);
+        assertEquals(0, cellIndex.getCandidates(0x8b1ec5b3c3a4fffL).length);
+
+        StorePrefilter prefilter = index.getPrefilter();
+        assertTrue(prefilter.mayBeNearStore(COARSE_CELL));
+        assertTrue(prefilter.mayBeNearStore(COARSE_NEIGHBOR));
+        assertFalse(prefilter.mayBeNearStore(0x871ec5b4fffffffL));
+    }
+
+    @Test
+    public void testIndexOutsideFileSystemIsExtractedAndMapped() throws IOException {
+        Path file = directory.resolve("stores.idx");
+        StoreIndexCompiler.compile(h3Core, STORES_JSON, List.of(atasehir, ortakoy), file);
+
+        // Like a jar entry, the resource has no file to map
+        BinaryStoreIndex index = BinaryStoreIndex.load(new ByteArrayResource(Files.readAllBytes(file)));
+
+        assertEquals(List.of(atasehir, ortakoy), index.getStores());
+        assertEquals(3, index.getCellIndex().size());
+        assertTrue(index.getPrefilter().mayBeNearStore(COARSE_CELL));
+    }
+
+    @Test
+    public void testIndexIsOnlyValidForItsSourceJson() throws IOException {
+        Path file = directory.resolve("stores.idx");
+        StoreIndexCompiler.compile(h3Core, STORES_JSON, List.of(atasehir), file);
+        BinaryStoreIndex index = BinaryStoreIndex.load(new FileSystemResource(file));
+
+        assertTrue(index.isCompiledFrom(new ByteArrayResource(STORES_JSON)));
+        assertFalse(index.isCompiledFrom(new ByteArrayResource("[]".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void testNonIndexFileIsRejected() throws IOException {
+        Path file = directory.resolve("stores.idx");
+        Files.write(file, STORES_JSON);
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryStoreIndex.load(new FileSystemResource(file)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryStoreIndex.read(ByteBuffer.allocate(4)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hasandogan.courier_tracking.model.ReplaySummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Replays a synthetic history of 5 million pings from NDJSON and CSV at increasing parallelism.
+ * Run with {@code mvn test -Dtest=BulkReplayBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class BulkReplayBenchmarkTest {
+
+    private static final int COURIERS = 10_000;
+    private static final int PINGS_PER_COURIER = 500;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    public void benchmarkReplay() throws IOException {
+        CourierLocationService service = new CourierLocationService();
+        ReflectionTestUtils.setField(service, "storesJsonFile", new ClassPathResource("stores.json"));
+        service.initializeH3();
+        service.loadStores();
+
+        Path ndjson = directory.resolve("history.ndjson");
+        Path csv = directory.resolve("history.csv");
+        writeHistory(ndjson, csv);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (Path input : new Path[] {ndjson, csv}) {
+            for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    ReplaySummary summary = new BulkReplay(service, objectMapper, pool).replay(input, directory.resolve("out"));
+                    assertEquals((long) COURIERS * PINGS_PER_COURIER, summary.getPings());
+                    System.out.printf("%s, %d threads: %.0f pings/s%n",
+                            input.getFileName(), parallelism, summary.getPingsPerSecond());
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    private static void writeHistory(Path ndjson, Path csv) throws IOException {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 22, 8, 0);
+        try (BufferedWriter json = Files.newBufferedWriter(ndjson); BufferedWriter rows = Files.newBufferedWriter(csv)) {
+            rows.write("time,courierId,latitude,longitude\n");
+            for (int p = 0; p < PINGS_PER_COURIER; p++) {
+                for (int c = 0; c < COURIERS; c++) {
+                    String time = start.plusSeconds(p * 10L).toString();
+                    double lat = 40.95 + random.nextDouble() * 0.15;
+                    double lng = 28.95 + random.nextDouble() * 0.2;
+                    json.write("{\"time\":\"" + time + "\",\"courierId\":\"courier-" + c
+                            + "\",\"latitude\":" + lat + ",\"longitude\":" + lng + "}\n");
+                    rows.write(time + ",courier-" + c + "," + lat + "," + lng + "\n");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.CourierReport;
+import com.hasandogan.courier_tracking.model.EntranceEvent;
+import com.hasandogan.courier_tracking.model.ReplaySummary;
+import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.util.DistanceCalculator;
+import com.uber.h3core.H3Core;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BulkReplayTest {
+
+    private static final long TEST_CELL = 0x8b1ec5b3c3a1fffL;
+
+    private static final double ATASEHIR_LAT = 40.9923307;
+    private static final double ATASEHIR_LNG = 29.1244229;
+    private static final double ORTAKOY_LAT = 41.055783;
+    private static final double ORTAKOY_LNG = 29.0210292;
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private H3Core h3Core;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private CourierLocationService liveService;
+
+    @BeforeEach
+    public void setup() {
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
+
+        Store atasehirStore = new Store();
+        atasehirStore.setName("Ataşehir MMM Migros");
+        atasehirStore.setLat(ATASEHIR_LAT);
+        atasehirStore.setLng(ATASEHIR_LNG);
+
+        liveService = new CourierLocationService();
+        ReflectionTestUtils.setField(liveService, "h3Core", h3Core);
+        ReflectionTestUtils.setField(liveService, "stores", new ArrayList<>(List.of(atasehirStore)));
+        liveService.indexStores();
+    }
+
+    private static String jsonLine(String time, String courierId, double lat, double lng) {
+        return String.format("{\"time\":\"%s\",\"courierId\":\"%s\",\"latitude\":%s,\"longitude\":%s}%n",
+                time, courierId, lat, lng);
+    }
+
+    private static String csvLine(String time, String courierId, double lat, double lng) {
+        return String.format("%s,%s,%s,%s%n", time, courierId, lat, lng);
+    }
+
+    @Test
+    public void testNdjsonReplay_SortsGroupsAndDetectsEntrances() throws IOException {
+        Path input = directory.resolve("history.ndjson");
+        Files.writeString(input,
+                jsonLine("2025-03-22T10:00:00", "courier123", ATASEHIR_LAT, ATASEHIR_LNG)
+                        + jsonLine("2025-03-22T10:30:00", "courier123", ORTAKOY_LAT, ORTAKOY_LNG)
+                        + jsonLine("2025-03-22T10:00:00", "courier456", ORTAKOY_LAT, ORTAKOY_LNG)
+                        + "not json\n"
+                        + jsonLine("2025-03-22T10:10:00", "courier123", ATASEHIR_LAT, ATASEHIR_LNG) // out of order
+                        + jsonLine("2025-03-22T10:00:00", "courier456", ORTAKOY_LAT, ORTAKOY_LNG)); // resend
+
+        // Many more chunks than lines, so every line boundary is a chunk boundary candidate
+        ReplaySummary summary = new BulkReplay(liveService, objectMapper, ForkJoinPool.commonPool(), 16)
+                .replay(input, directory.resolve("out"));
+
+        assertEquals(5, summary.getPings());
+        assertEquals(1, summary.getSkippedLines());
+        assertEquals(2, summary.getCouriers());
+        assertEquals(2, summary.getEntrances());
+
+        List<CourierReport> reports = readLines(directory.resolve("out/couriers.ndjson"), CourierReport.class);
+        reports.sort(Comparator.comparing(CourierReport::getCourierId));
+        CourierReport courier123 = reports.get(0);
+        assertEquals(3, courier123.getPointCount());
+        assertEquals(2, courier123.getStoreVisits());
+        double expected = new DistanceCalculator().calculateDistance(ATASEHIR_LAT, ATASEHIR_LNG, ORTAKOY_LAT, ORTAKOY_LNG);
+        assertEquals(expected, courier123.getTotalDistance(), 0.001);
+        assertEquals(1, reports.get(1).getPointCount()); // the resend is dropped
+
+        List<EntranceEvent> entrances = readLines(directory.resolve("out/entrances.ndjson"), EntranceEvent.class);
+        assertEquals(List.of(
+                new EntranceEvent("courier123", "Ataşehir MMM Migros", LocalDateTime.of(2025, 3, 22, 10, 0)),
+                new EntranceEvent("courier123", "Ataşehir MMM Migros", LocalDateTime.of(2025, 3, 22, 10, 10))
+        ), entrances);
+
+        // The live service is untouched
+        assertNull(liveService.getCourierLocations("courier123"));
+    }
+
+    @Test
+    public void testCsvReplay_SkipsHeader() throws IOException {
+        Path input = directory.resolve("history.csv");
+        Files.writeString(input, "time,courierId,latitude,longitude\r\n"
+                + csvLine("2025-03-22T10:30:00", "courier123", ORTAKOY_LAT, ORTAKOY_LNG)
+                + csvLine("2025-03-22T10:00:00", "courier123", ATASEHIR_LAT, ATASEHIR_LNG).trim());
+
+        ReplaySummary summary = new BulkReplay(liveService, objectMapper, ForkJoinPool.commonPool(), 3)
+                .replay(input, directory.resolve("out"));
+
+        assertEquals(2, summary.getPings());
+        assertEquals(1, summary.getSkippedLines());
+        assertEquals(1, summary.getEntrances());
+        List<CourierReport> reports = readLines(directory.resolve("out/couriers.ndjson"), CourierReport.class);
+        assertEquals(LocalDateTime.of(2025, 3, 22, 10, 0), reports.get(0).getFirstSeen());
+    }
+
+    @Test
+    public void testReplayCopy_KeepsTotalsInsteadOfTrajectories() {
+        CourierLocationService replayService = liveService.detachedCopy(event -> { });
+        LocalDateTime start = LocalDateTime.of(2025, 3, 22, 10, 0);
+        List<CourierLocation> pings = List.of(
+                new CourierLocation(start, "courier123", ATASEHIR_LAT, ATASEHIR_LNG),
+                new CourierLocation(start.plusMinutes(30), "courier123", ORTAKOY_LAT, ORTAKOY_LNG),
+                new CourierLocation(start.plusMinutes(40), "courier123", ATASEHIR_LAT, ATASEHIR_LNG));
+        pings.forEach(replayService::processLocation);
+        pings.forEach(liveService::processLocation);
+
+        // No stored points, yet the same report as the service that stores them
+        assertNull(replayService.getCourierLocations("courier123"));
+        assertEquals(liveService.getFleetReport(), replayService.getFleetReport());
+    }
+
+    @Test
+    public void testReplayCopy_UsesConfiguredMaxSpeed() {
+        // Ataşehir to Ortaköy in ten minutes is about 18 m/s
+        ReflectionTestUtils.setField(liveService, "maxSpeedMetersPerSecond", 10.0);
+        CourierLocationService replayService = liveService.detachedCopy(event -> { });
+        LocalDateTime start = LocalDateTime.of(2025, 3, 22, 10, 0);
+
+        replayService.processLocation(new CourierLocation(start, "courier123", ATASEHIR_LAT, ATASEHIR_LNG));
+        replayService.processLocation(new CourierLocation(start.plusMinutes(10), "courier123", ORTAKOY_LAT, ORTAKOY_LNG));
+
+        assertEquals(1, replayService.getGpsJumps());
+    }
+
+    private <T> List<T> readLines(Path file, Class<T> type) throws IOException {
+        List<T> values = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            values.add(objectMapper.readValue(line, type));
+        }
+        return values;
+    }
+}
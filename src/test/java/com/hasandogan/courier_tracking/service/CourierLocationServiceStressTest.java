@@ -0,0 +1,264 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.CourierReport;
+import com.hasandogan.courier_tracking.model.EntranceEvent;
+import com.hasandogan.courier_tracking.model.Store;
+import com.uber.h3core.H3Core;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ingests seeded courier traces from 1, 2, 4, 8 and all available threads while another thread keeps querying,
+ * and checks the outcome against a sequential run of the same trace. Throughput is printed for every run.
+ */
+public class CourierLocationServiceStressTest {
+
+    private static final int COURIERS = 64;
+    private static final int PINGS_PER_COURIER = 500;
+    private static final long SEED = 42;
+    private static final double RESEND_RATE = 0.05;
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 22, 8, 0);
+    private static final LocalDateTime WINDOW_FROM = START.minusDays(1);
+    private static final LocalDateTime WINDOW_TO = START.plusDays(1);
+
+    private static H3Core h3Core;
+    private static List<Store> stores;
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        h3Core = H3Core.newInstance();
+        stores = List.of(store("Ataşehir MMM Migros", 40.9923307, 29.1244229),
+                store("Ortaköy MMM Migros", 41.055783, 29.0210292));
+    }
+
+    @Test
+    public void testPerCourierIngest_MatchesSequentialRun() throws Exception {
+        // Every courier is fed by one thread, in the order its device sent the pings
+        List<List<CourierLocation>> trace = trace(true);
+        Ingest sequential = new Ingest();
+        trace.forEach(pings -> pings.forEach(sequential.service::processLocation));
+        assertFalse(sequential.entrances.isEmpty(), "The trace should pass by the stores");
+
+        for (int threads : threadCounts()) {
+            List<List<CourierLocation>> queues = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                queues.add(new ArrayList<>());
+            }
+            for (int c = 0; c < COURIERS; c++) {
+                queues.get(c % threads).addAll(trace.get(c));
+            }
+            Ingest concurrent = new Ingest();
+            concurrent.run("per-courier", queues);
+
+            for (int c = 0; c < COURIERS; c++) {
+                String courierId = courierId(c);
+                assertEquals(sequential.service.getCourierLocations(courierId),
+                        concurrent.service.getCourierLocations(courierId), "Pings of " + courierId);
+                assertEquals(sequential.service.getTotalTravelDistance(courierId),
+                        concurrent.service.getTotalTravelDistance(courierId), "Distance of " + courierId);
+            }
+            assertEquals(sequential.service.getRejectedDuplicates(), concurrent.service.getRejectedDuplicates());
+            assertEquals(sorted(sequential.entrances), sorted(concurrent.entrances));
+            assertEquals(visitsPerCourier(sequential.service), visitsPerCourier(concurrent.service));
+            assertEntrancesOncePerMinute(concurrent.entrances);
+        }
+    }
+
+    @Test
+    public void testScatteredIngest_KeepsInvariants() throws Exception {
+        // Pings of one courier arrive on several threads at once and out of order
+        List<List<CourierLocation>> trace = trace(false);
+        Ingest sequential = new Ingest();
+        trace.forEach(pings -> pings.forEach(sequential.service::processLocation));
+
+        List<CourierLocation> all = trace.stream().flatMap(List::stream).collect(Collectors.toList());
+        Collections.shuffle(all, new Random(SEED));
+
+        for (int threads : threadCounts()) {
+            List<List<CourierLocation>> queues = new ArrayList<>();
+            int chunk = (all.size() + threads - 1) / threads;
+            for (int from = 0; from < all.size(); from += chunk) {
+                queues.add(all.subList(from, Math.min(all.size(), from + chunk)));
+            }
+            Ingest concurrent = new Ingest();
+            concurrent.run("scattered", queues);
+
+            for (int c = 0; c < COURIERS; c++) {
+                String courierId = courierId(c);
+                List<CourierLocation> stored = new ArrayList<>(concurrent.service.getCourierLocations(courierId));
+                stored.sort(Comparator.comparing(CourierLocation::getTime));
+                assertEquals(trace.get(c), stored, "Pings of " + courierId);
+                assertEquals(
+                        sequential.service.getTravelDistanceBetween(courierId, WINDOW_FROM, WINDOW_TO).getDistance(),
+                        concurrent.service.getTravelDistanceBetween(courierId, WINDOW_FROM, WINDOW_TO).getDistance(),
+                        1e-6, "Distance of " + courierId);
+            }
+            assertEquals(0, concurrent.service.getRejectedDuplicates());
+            assertEntrancesOncePerMinute(concurrent.entrances);
+        }
+    }
+
+    /**
+     * Logged entrances of a courier into a store are at least a minute apart, whatever order they arrived in.
+     */
+    private static void assertEntrancesOncePerMinute(Queue<EntranceEvent> entrances) {
+        Map<String, List<LocalDateTime>> times = new HashMap<>();
+        for (EntranceEvent event : entrances) {
+            times.computeIfAbsent(event.getCourierId() + "/" + event.getStoreName(), k -> new ArrayList<>())
+                    .add(event.getTime());
+        }
+        times.forEach((key, list) -> {
+            Collections.sort(list);
+            for (int i = 1; i < list.size(); i++) {
+                assertFalse(Duration.between(list.get(i - 1), list.get(i)).compareTo(Duration.ofMinutes(1)) < 0,
+                        key + " entered at " + list.get(i - 1) + " and " + list.get(i));
+            }
+        });
+    }
+
+    /**
+     * One random walk per courier around one of the stores, a ping every 10 seconds. With resends, some pings
+     * are followed by an exact copy as a device retry would send it.
+     */
+    private static List<List<CourierLocation>> trace(boolean withResends) {
+        List<List<CourierLocation>> trace = new ArrayList<>();
+        for (int c = 0; c < COURIERS; c++) {
+            Random random = new Random(SEED + c);
+            Store store = stores.get(c % stores.size());
+            double lat = store.getLat() + (random.nextDouble() - 0.5) * 0.006;
+            double lng = store.getLng() + (random.nextDouble() - 0.5) * 0.006;
+            List<CourierLocation> pings = new ArrayList<>();
+            for (int p = 0; p < PINGS_PER_COURIER; p++) {
+                lat += (random.nextDouble() - 0.5) * 0.0004 + (store.getLat() - lat) * 0.02;
+                lng += (random.nextDouble() - 0.5) * 0.0004 + (store.getLng() - lng) * 0.02;
+                CourierLocation ping = new CourierLocation(START.plusSeconds(10L * p), courierId(c), lat, lng);
+                pings.add(ping);
+                if (withResends && random.nextDouble() < RESEND_RATE) {
+                    pings.add(new CourierLocation(ping.getTime(), ping.getCourierId(), lat, lng));
+                }
+            }
+            trace.add(pings);
+        }
+        return trace;
+    }
+
+    private static TreeSet<Integer> threadCounts() {
+        return new TreeSet<>(List.of(1, 2, 4, 8, Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static List<EntranceEvent> sorted(Queue<EntranceEvent> entrances) {
+        List<EntranceEvent> list = new ArrayList<>(entrances);
+        list.sort(Comparator.comparing(EntranceEvent::getCourierId)
+                .thenComparing(EntranceEvent::getStoreName)
+                .thenComparing(EntranceEvent::getTime));
+        return list;
+    }
+
+    private static Map<String, Long> visitsPerCourier(CourierLocationService service) {
+        return service.getFleetReport().stream()
+                .collect(Collectors.toMap(CourierReport::getCourierId, CourierReport::getStoreVisits));
+    }
+
+    private static String courierId(int c) {
+        return "courier" + c;
+    }
+
+    private static Store store(String name, double lat, double lng) {
+        Store store = new Store();
+        store.setName(name);
+        store.setLat(lat);
+        store.setLng(lng);
+        return store;
+    }
+
+    /**
+     * A fresh service with the test stores, recording every entrance it logs.
+     */
+    private static final class Ingest {
+
+        final CourierLocationService service = new CourierLocationService();
+        final Queue<EntranceEvent> entrances = new ConcurrentLinkedQueue<>();
+
+        Ingest() {
+            ReflectionTestUtils.setField(service, "h3Core", h3Core);
+            ReflectionTestUtils.setField(service, "stores", new ArrayList<>(stores));
+            service.indexStores();
+            ReflectionTestUtils.setField(service, "entranceListener", (Consumer<EntranceEvent>) entrances::add);
+        }
+
+        /**
+         * Ingests each queue on its own thread while one more thread queries the couriers until ingest ends.
+         */
+        void run(String mode, List<List<CourierLocation>> queues) throws Exception {
+            ExecutorService executor = Executors.newFixedThreadPool(queues.size() + 1);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                CountDownLatch done = new CountDownLatch(queues.size());
+                List<Future<?>> ingest = new ArrayList<>();
+                for (List<CourierLocation> queue : queues) {
+                    ingest.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            queue.forEach(service::processLocation);
+                        } finally {
+                            done.countDown();
+                        }
+                        return null;
+                    }));
+                }
+                Future<?> queries = executor.submit(() -> {
+                    start.await();
+                    for (int c = 0; done.getCount() > 0; c = (c + 1) % COURIERS) {
+                        String courierId = courierId(c);
+                        if (service.getCourierVersion(courierId) >= 2) {
+                            service.getTotalTravelDistanceOfCourier(courierId);
+                            service.getCourierLocations(courierId);
+                            service.getTravelDistanceBetween(courierId, WINDOW_FROM, WINDOW_TO);
+                            service.getCourierKinematics(courierId);
+                        }
+                    }
+                    return null;
+                });
+
+                long begin = System.nanoTime();
+                start.countDown();
+                for (Future<?> future : ingest) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+                double seconds = (System.nanoTime() - begin) / 1e9;
+                queries.get(1, TimeUnit.MINUTES);
+
+                int pings = queues.stream().mapToInt(List::size).sum();
+                System.out.printf("%s ingest, threads=%d: %,.0f pings/s%n", mode, queues.size(), pings / seconds);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -1,35 +1,46 @@
 package com.hasandogan.courier_tracking.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.CourierKinematics;
 import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.CourierReport;
+import com.hasandogan.courier_tracking.model.DetectionShardStats;
+import com.hasandogan.courier_tracking.model.DistanceWindow;
 import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.model.StoreDetectionStats;
 import com.hasandogan.courier_tracking.util.DistanceCalculator;
 import com.uber.h3core.H3Core;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -37,6 +48,12 @@ import static org.mockito.Mockito.*;
 @MockitoSettings(strictness = Strictness.LENIENT)
 public class CourierLocationServiceTest {
 
+    private static final long TEST_CELL = 0x8b1ec5b3c3a1fffL;
+    private static final long STORE_CELL = 0x8b1ec5b3c3a5fffL;
+    private static final long COURIER_CELL = 0x8b1ec5b3c3a4fffL;
+    private static final long ATASEHIR_CELL = 0x8b1ec5b3c3a2fffL;
+    private static final long ORTAKOY_CELL = 0x8b1ec5b3c3a3fffL;
+
     @Mock
     private ObjectMapper objectMapper;
 
@@ -52,6 +69,9 @@ public class CourierLocationServiceTest {
     @InjectMocks
     private CourierLocationService courierLocationService;
 
+    @TempDir
+    Path directory;
+
     private CourierLocation atasehirLocation;
     private CourierLocation ortakoyLocation;
 
@@ -92,8 +112,8 @@ public class CourierLocationServiceTest {
         doReturn(stores).when(objectMapper).readValue(any(InputStream.class), eq(Store[].class));
         
         // Set up H3Core mock - use doReturn instead of when for more flexibility
-        doReturn("testH3Index").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
         
         // Set up the stores list through reflection
         List<Store> storeList = new ArrayList<>();
@@ -108,8 +128,8 @@ public class CourierLocationServiceTest {
     @Test
     public void testProcessLocation() {
         // Given
-        doReturn("index1").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
         doReturn(150.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
 
         ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
@@ -139,8 +159,8 @@ public class CourierLocationServiceTest {
     @Test
     public void testGetTotalTravelDistance_WithOneLocation() {
         // Given
-        doReturn("singleLocationIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
         doReturn(150.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
 
         ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
@@ -157,11 +177,11 @@ public class CourierLocationServiceTest {
     @Test
     public void testGetTotalTravelDistance_WithMultipleLocations() {
         // Given
-        doReturn("atasehirH3Index").when(h3Core).latLngToCellAddress(eq(atasehirLocation.getLatitude()), eq(atasehirLocation.getLongitude()), anyInt());
-        doReturn("ortakoyH3Index").when(h3Core).latLngToCellAddress(eq(ortakoyLocation.getLatitude()), eq(ortakoyLocation.getLongitude()), anyInt());
-        doReturn("someH3Index").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
+        doReturn(ATASEHIR_CELL).when(h3Core).latLngToCell(eq(atasehirLocation.getLatitude()), eq(atasehirLocation.getLongitude()), anyInt());
+        doReturn(ORTAKOY_CELL).when(h3Core).latLngToCell(eq(ortakoyLocation.getLatitude()), eq(ortakoyLocation.getLongitude()), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
 
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
         
         // Mock distance calculation between store and location (for store entrance check) to return > 100
         doReturn(150.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
@@ -188,8 +208,8 @@ public class CourierLocationServiceTest {
     @Test
     public void testGetTotalTravelDistance_OfCourier_LessThan1000M() {
        // Given
-        doReturn("formattedDistanceIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
 
         doReturn(150.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
         doReturn(500.0).when(distanceCalculator).calculateDistance(
@@ -211,8 +231,8 @@ public class CourierLocationServiceTest {
     @Test
     public void testGetTotalTravelDistance_OfCourier_MoreThan1000M() {
         // Given
-        doReturn("formattedDistanceIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
 
         doReturn(150.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
         doReturn(8500.0).when(distanceCalculator).calculateDistance(
@@ -234,8 +254,8 @@ public class CourierLocationServiceTest {
     @Test
     public void testGetCourierLocations() {
         // Given
-        doReturn("locationTestIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
         doReturn(150.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
 
         ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
@@ -264,8 +284,8 @@ public class CourierLocationServiceTest {
     @Test
     public void testStoreEntrance() {
         // Given
-        doReturn("courierIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
 
         doReturn(50.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
         ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
@@ -286,9 +306,10 @@ public class CourierLocationServiceTest {
     public void testStoreEntrance_WithNeighborH3Cell() {
         // Given
         // H3 calculations for different H3 cells but within neighboring range
-        doReturn("courierIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn("storeIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(List.of("storeIndex", "courierIndex")).when(h3Core).gridDisk(eq("storeIndex"), anyInt());
+        doReturn(STORE_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(List.of(STORE_CELL, COURIER_CELL)).when(h3Core).gridDisk(eq(STORE_CELL), anyInt());
+        courierLocationService.indexStores();
+        doReturn(COURIER_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), eq(11));
 
         doReturn(90.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
 
@@ -309,9 +330,9 @@ public class CourierLocationServiceTest {
     @Test
     public void testStoreEntrance_Outside100Meters() {
         // Given
-        doReturn("courierIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
         // NOT include courierIndex in neighbors
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
         doReturn(150.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
 
         ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
@@ -332,8 +353,8 @@ public class CourierLocationServiceTest {
     @Test
     public void testDuplicateStoreEntrance_WithinOneMinute() {
         // Given
-        doReturn("sameIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
 
         doReturn(50.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
 
@@ -366,8 +387,8 @@ public class CourierLocationServiceTest {
     @Test
     public void testDuplicateStoreEntrance_AfterOneMinute() {
         // Given
-        doReturn("sameIndex").when(h3Core).latLngToCellAddress(anyDouble(), anyDouble(), anyInt());
-        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyString(), anyInt());
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
         doReturn(50.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
 
         ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
@@ -389,4 +410,268 @@ public class CourierLocationServiceTest {
         LocalDateTime storedTime = lastEntranceTime.get("courier123").get("Ataşehir MMM Migros");
         assertEquals(location2.getTime(), storedTime);
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testStoreEntrance_WithoutTime() {
+        // Given
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
+        doReturn(50.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+
+        // When a time-less ping inside the store follows a timed entrance
+        courierLocationService.processLocation(atasehirLocation);
+        courierLocationService.processLocation(new CourierLocation(null, "courier123", 40.9923307, 29.1244229));
+
+        // Then it is accepted and counted for the courier, but not bucketed by time
+        assertEquals(2, courierLocationService.getCourierLocations("courier123").size());
+        assertEquals(2, courierLocationService.getFleetReport().get(0).getStoreVisits());
+        assertEquals(1, courierLocationService.getTopVisitedStores(
+                StoreVisitCounter.Granularity.HOUR, 1, 10).get(0).getVisits());
+    }
+
+    @Test
+    public void testGetFleetReport() {
+        // Given
+        doReturn(TEST_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+        doReturn(Collections.emptyList()).when(h3Core).gridDisk(anyLong(), anyInt());
+        doReturn(50.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+        doReturn(11180.91).when(distanceCalculator).calculateDistance(
+                eq(atasehirLocation.getLatitude()), eq(atasehirLocation.getLongitude()),
+                eq(ortakoyLocation.getLatitude()), eq(ortakoyLocation.getLongitude()));
+
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+
+        courierLocationService.processLocation(atasehirLocation);
+        courierLocationService.processLocation(ortakoyLocation);
+        courierLocationService.processLocation(new CourierLocation(
+                LocalDateTime.of(2025, 3, 22, 9, 0), "courier456", 41.0, 29.0));
+
+        // When
+        List<CourierReport> reports = courierLocationService.getFleetReport();
+
+        // Then
+        assertEquals(2, reports.size());
+        CourierReport report = reports.stream()
+                .filter(r -> r.getCourierId().equals("courier123"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, report.getPointCount());
+        assertEquals(11180.91, report.getTotalDistance());
+        assertEquals(atasehirLocation.getTime(), report.getFirstSeen());
+        assertEquals(ortakoyLocation.getTime(), report.getLastSeen());
+        assertTrue(report.getStoreVisits() > 0);
+    }
+
+    @Test
+    public void testStationaryCourier_SkipsStoreDetection() {
+        // Given a courier that passes the coarse prefilter but is in a fine cell not near any store
+        doReturn(COURIER_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), eq(11));
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+
+        LocalDateTime now = LocalDateTime.of(2025, 3, 22, 14, 0);
+        courierLocationService.processLocation(new CourierLocation(now, "courier123", 41.0, 29.0));
+        courierLocationService.processLocation(new CourierLocation(now.plusSeconds(10), "courier123", 41.0, 29.0));
+
+        // Then no distance check against any store is made and the cell index is not rebuilt
+        verify(distanceCalculator, never()).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+        verify(h3Core, times(2)).latLngToCell(41.0, 29.0, 11);
+        assertEquals(2, courierLocationService.getCourierLocations("courier123").size());
+    }
+
+    @Test
+    public void testPrefilter_SkipsPingsFarFromStores() {
+        // Given a coarse cell outside the prefilter
+        doReturn(COURIER_CELL).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+
+        // When
+        courierLocationService.processLocation(new CourierLocation(
+                LocalDateTime.of(2025, 3, 22, 15, 0), "courier123", 41.0, 29.0));
+        courierLocationService.processLocation(atasehirLocation);
+
+        // Then the fine resolution cell is never computed for the skipped pings
+        verify(h3Core, never()).latLngToCell(41.0, 29.0, 11);
+        StoreDetectionStats stats = courierLocationService.getStoreDetectionStats();
+        assertEquals(2, stats.getCheckedPings());
+        assertEquals(2, stats.getPrefilterSkips());
+        assertEquals(1.0, stats.getSkipRatio());
+    }
+
+    @Test
+    public void testDetection_WaitsUntilDeferredLoadHasIndexedStores() throws Exception {
+        // Given H3 is published but the loader thread is still indexing the stores
+        CompletableFuture<Void> h3Ready = new CompletableFuture<>();
+        ReflectionTestUtils.setField(courierLocationService, "h3Ready", h3Ready);
+        ReflectionTestUtils.setField(courierLocationService, "storeCellIndex", null);
+        ReflectionTestUtils.setField(courierLocationService, "storePrefilter", null);
+
+        // When a ping arrives meanwhile
+        Thread ping = new Thread(() -> courierLocationService.processLocation(atasehirLocation));
+        ping.start();
+        ping.join(200);
+        assertTrue(ping.isAlive(), "Detection should wait for the load to finish");
+        courierLocationService.indexStores();
+        h3Ready.complete(null);
+        ping.join(TimeUnit.SECONDS.toMillis(10));
+
+        // Then its detection ran against the finished index instead of being dropped
+        assertFalse(ping.isAlive());
+        assertEquals(1, courierLocationService.getStoreDetectionStats().getCheckedPings());
+    }
+
+    @Test
+    public void testDuplicatePing_IsDropped() {
+        // Given
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+        CourierLocation retry = new CourierLocation(
+                atasehirLocation.getTime(), "courier123", atasehirLocation.getLatitude(), atasehirLocation.getLongitude());
+
+        // When the device resends the same ping, also after a newer one
+        courierLocationService.processLocation(atasehirLocation);
+        courierLocationService.processLocation(retry);
+        courierLocationService.processLocation(ortakoyLocation);
+        courierLocationService.processLocation(retry);
+
+        // Then
+        assertEquals(2, courierLocationService.getCourierLocations("courier123").size());
+        assertEquals(2, courierLocationService.getRejectedDuplicates());
+    }
+
+    @Test
+    public void testOutOfOrderPing_IsNotDuplicate() {
+        // Given
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+        CourierLocation late = new CourierLocation(
+                atasehirLocation.getTime().minusMinutes(5), "courier123", 40.99, 29.12);
+
+        // When
+        courierLocationService.processLocation(atasehirLocation);
+        courierLocationService.processLocation(late);
+
+        // Then
+        assertEquals(2, courierLocationService.getCourierLocations("courier123").size());
+        assertEquals(0, courierLocationService.getRejectedDuplicates());
+    }
+
+    @Test
+    public void testCourierVersion_BumpedPerStoredPoint() {
+        // Given
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+        assertEquals(0, courierLocationService.getCourierVersion("courier123"));
+
+        // When
+        courierLocationService.processLocation(atasehirLocation);
+        courierLocationService.processLocation(ortakoyLocation);
+        courierLocationService.processLocation(ortakoyLocation); // duplicate, not stored
+
+        // Then
+        assertEquals(2, courierLocationService.getCourierVersion("courier123"));
+    }
+
+    @Test
+    public void testStoreEntrance_DetectedOnRegionShard() {
+        // Given
+        doReturn(50.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+        doReturn(0x831ec5fffffffffL).when(h3Core).cellToParent(anyLong(), eq(3));
+        ReflectionTestUtils.setField(courierLocationService, "detectionShards", 2);
+        courierLocationService.indexStores();
+
+        try {
+            // When
+            courierLocationService.processLocation(atasehirLocation);
+
+            // Then: detection finishes asynchronously on the shard's worker
+            long deadline = System.currentTimeMillis() + 5000;
+            while (courierLocationService.getDetectionShardStats().stream()
+                    .mapToLong(DetectionShardStats::getProcessedPings).sum() < 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.onSpinWait();
+            }
+            Map<String, Map<String, LocalDateTime>> lastEntranceTime =
+                (Map<String, Map<String, LocalDateTime>>) ReflectionTestUtils.getField(courierLocationService, "lastEntranceTime");
+            assertTrue(lastEntranceTime.get("courier123").containsKey("Ataşehir MMM Migros"));
+        } finally {
+            courierLocationService.stopDetectionShards();
+        }
+    }
+
+    @Test
+    public void testRegionShards_StartWithBinaryIndexAfterH3() throws IOException {
+        // Given a prebuilt index of the current stores.json and H3 loaded before the stores, as without deferral
+        byte[] json = "[{\"name\":\"Ataşehir MMM Migros\"}]".getBytes(StandardCharsets.UTF_8);
+        Path index = directory.resolve("stores.idx");
+        List<Store> stores = (List<Store>) ReflectionTestUtils.getField(courierLocationService, "stores");
+        StoreIndexCompiler.compile(h3Core, json, stores, index);
+        doReturn(0x831ec5fffffffffL).when(h3Core).cellToParent(anyLong(), eq(3));
+
+        CourierLocationService service = new CourierLocationService();
+        ReflectionTestUtils.setField(service, "storesJsonFile", new ByteArrayResource(json));
+        ReflectionTestUtils.setField(service, "storesBinaryIndexLocation", index.toUri().toString());
+        ReflectionTestUtils.setField(service, "detectionShards", 2);
+        ReflectionTestUtils.setField(service, "h3Core", h3Core);
+        service.indexStores();
+
+        try {
+            // When the stores come from the binary index
+            service.loadStores();
+
+            // Then the region shards run all the same
+            assertEquals(2, service.getDetectionShardStats().size());
+        } finally {
+            service.stopDetectionShards();
+        }
+    }
+
+    @Test
+    public void testGpsJump_StoredButSkipsDetection() {
+        // Given a courier at Ataşehir and a glitch to Ortaköy, 11 km away, ten seconds later
+        doReturn(500.0).when(distanceCalculator).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+        doReturn(0.0).when(distanceCalculator).calculateDistance(
+                eq(ortakoyLocation.getLatitude()), eq(ortakoyLocation.getLongitude()), anyDouble(), anyDouble());
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+        CourierLocation glitch = new CourierLocation(atasehirLocation.getTime().plusSeconds(10), "courier123",
+                ortakoyLocation.getLatitude(), ortakoyLocation.getLongitude());
+
+        // When
+        courierLocationService.processLocation(atasehirLocation);
+        courierLocationService.processLocation(glitch);
+
+        // Then the point is kept in the trajectory but no entrance is detected for it
+        assertEquals(2, courierLocationService.getCourierLocations("courier123").size());
+        assertEquals(1, courierLocationService.getGpsJumps());
+        Map<String, Map<String, LocalDateTime>> lastEntranceTime =
+            (Map<String, Map<String, LocalDateTime>>) ReflectionTestUtils.getField(courierLocationService, "lastEntranceTime");
+        assertFalse(lastEntranceTime.containsKey("courier123"));
+
+        CourierKinematics kinematics = courierLocationService.getCourierKinematics("courier123");
+        assertEquals(1, kinematics.getRejectedJumps());
+        assertEquals(0.0, kinematics.getFilteredDistance());
+        assertTrue(kinematics.getRawDistance() > 10_000);
+        assertNull(courierLocationService.getCourierKinematics("unknown"));
+    }
+
+    @Test
+    public void testTravelDistanceBetween() {
+        // Given
+        ReflectionTestUtils.setField(courierLocationService, "distanceCalculator", distanceCalculator);
+        courierLocationService.processLocation(atasehirLocation);
+        courierLocationService.processLocation(ortakoyLocation);
+
+        // When
+        DistanceWindow whole = courierLocationService.getTravelDistanceBetween("courier123",
+                atasehirLocation.getTime(), ortakoyLocation.getTime());
+        DistanceWindow before = courierLocationService.getTravelDistanceBetween("courier123",
+                atasehirLocation.getTime().minusHours(1), atasehirLocation.getTime().plusMinutes(30));
+
+        // Then
+        assertEquals(DistanceCalculator.haversineMeters(atasehirLocation.getLatitude(), atasehirLocation.getLongitude(),
+                ortakoyLocation.getLatitude(), ortakoyLocation.getLongitude()), whole.getDistance(), 1e-6);
+        assertEquals(2, whole.getPointCount());
+        assertEquals(0.0, before.getDistance());
+        assertEquals(1, before.getPointCount());
+        assertNull(courierLocationService.getTravelDistanceBetween("unknown",
+                atasehirLocation.getTime(), ortakoyLocation.getTime()));
+    }
+}
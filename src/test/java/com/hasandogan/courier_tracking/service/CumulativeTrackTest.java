@@ -0,0 +1,84 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.util.DistanceCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CumulativeTrackTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testWindowCoversPingsInside() {
+        CumulativeTrack track = new CumulativeTrack();
+        track.add(0, 41.0, 29.0);
+        track.add(60 * SECOND, 41.001, 29.0);
+        track.add(120 * SECOND, 41.002, 29.0);
+
+        double step = DistanceCalculator.haversineMeters(41.0, 29.0, 41.001, 29.0);
+        assertEquals(2 * step, track.distanceBetween(0, 120 * SECOND), 1e-6);
+        assertEquals(step, track.distanceBetween(30 * SECOND, 120 * SECOND), 1e-6);
+        assertEquals(0.0, track.distanceBetween(30 * SECOND, 90 * SECOND));
+        assertEquals(1, track.countBetween(30 * SECOND, 90 * SECOND));
+        assertEquals(0.0, track.distanceBetween(200 * SECOND, 300 * SECOND));
+        assertEquals(0, track.countBetween(200 * SECOND, 300 * SECOND));
+    }
+
+    @Test
+    public void testLatePingIsInsertedInTimeOrder() {
+        CumulativeTrack track = new CumulativeTrack();
+        track.add(0, 41.0, 29.0);
+        track.add(120 * SECOND, 41.002, 29.0);
+        track.add(60 * SECOND, 41.001, 29.01);
+
+        double expected = DistanceCalculator.haversineMeters(41.0, 29.0, 41.001, 29.01)
+                + DistanceCalculator.haversineMeters(41.001, 29.01, 41.002, 29.0);
+        assertEquals(expected, track.distanceBetween(0, 120 * SECOND), 1e-6);
+        assertEquals(3, track.size());
+    }
+
+    @Test
+    public void testMatchesBruteForceSummation() {
+        Random random = new Random(42);
+        CumulativeTrack track = new CumulativeTrack();
+        List<double[]> pings = new ArrayList<>(); // time, lat, lng
+        for (int i = 0; i < 2_000; i++) {
+            // Mostly in order, every tenth ping arrives up to ten minutes late
+            long time = i * 30 * SECOND - (i % 10 == 0 ? random.nextInt(600) * SECOND : 0);
+            double lat = 40.95 + random.nextDouble() * 0.1;
+            double lng = 29.0 + random.nextDouble() * 0.1;
+            track.add(time, lat, lng);
+            pings.add(new double[] {time, lat, lng});
+        }
+        pings.sort(Comparator.comparingDouble(p -> p[0]));
+
+        for (int query = 0; query < 500; query++) {
+            long a = (long) (random.nextDouble() * 2_000 * 30) * SECOND;
+            long b = (long) (random.nextDouble() * 2_000 * 30) * SECOND;
+            long from = Math.min(a, b);
+            long to = Math.max(a, b);
+
+            double expected = 0;
+            double[] previous = null;
+            int count = 0;
+            for (double[] ping : pings) {
+                if (ping[0] < from || ping[0] > to) {
+                    continue;
+                }
+                if (previous != null) {
+                    expected += DistanceCalculator.haversineMeters(previous[1], previous[2], ping[1], ping[2]);
+                }
+                previous = ping;
+                count++;
+            }
+            assertEquals(expected, track.distanceBetween(from, to), 1e-3);
+            assertEquals(count, track.countBetween(from, to));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hasandogan.courier_tracking.model.EntranceEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntranceEventSinkTest {
+
+    @TempDir
+    Path directory;
+
+    private EntranceEventSink sink;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @AfterEach
+    public void tearDown() {
+        if (sink != null) {
+            sink.stop();
+        }
+    }
+
+    private EntranceEventSink createSink(long segmentMaxBytes, int queueCapacity) throws IOException {
+        sink = new EntranceEventSink(objectMapper, directory.toString(), segmentMaxBytes,
+                Duration.ofHours(1), 10, queueCapacity, false);
+        return sink;
+    }
+
+    @Test
+    public void testEventsAreWrittenAndReadByTimeRange() throws IOException {
+        createSink(1024 * 1024, 1024).start();
+        LocalDateTime time = LocalDateTime.of(2025, 3, 22, 10, 0);
+        sink.append(new EntranceEvent("courier123", "Ataşehir MMM Migros", time));
+        sink.append(new EntranceEvent("courier123", "Ortaköy MMM Migros", time.plusHours(1)));
+        sink.append(new EntranceEvent("courier456", "Novada MMM Migros", time.plusHours(2)));
+        sink.stop();
+
+        assertEquals(3, sink.getWrittenEvents());
+        List<EntranceEvent> events = sink.readEvents(time.plusMinutes(30), time.plusHours(2));
+        assertEquals(2, events.size());
+        assertEquals("Ortaköy MMM Migros", events.get(0).getStoreName());
+        assertEquals("Novada MMM Migros", events.get(1).getStoreName());
+    }
+
+    @Test
+    public void testSegmentsRotateBySize() throws IOException {
+        // Tiny segments so nearly every batch closes its segment
+        createSink(64, 1024).start();
+        LocalDateTime time = LocalDateTime.of(2025, 3, 22, 10, 0);
+        for (int i = 0; i < 20; i++) {
+            sink.append(new EntranceEvent("courier" + i, "Ataşehir MMM Migros", time.plusMinutes(i)));
+            awaitWritten(i + 1);
+        }
+        sink.stop();
+
+        long closedSegments;
+        try (Stream<Path> files = Files.list(directory)) {
+            closedSegments = files.filter(file -> file.getFileName().toString().endsWith(".ndjson")).count();
+        }
+        assertTrue(closedSegments > 1);
+        assertEquals(20, sink.readEvents(time, time.plusHours(1)).size());
+        assertEquals(5, sink.readEvents(time.plusMinutes(15), time.plusHours(1)).size());
+    }
+
+    @Test
+    public void testFailedRotationDoesNotDropWrittenEvents() throws IOException {
+        // Given the closed name of the first segment is already taken, so renaming it fails
+        LocalDateTime time = LocalDateTime.of(2025, 3, 22, 10, 0);
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        Files.createFile(directory.resolve(String.format("segment-%09d_%d_%d.ndjson", 1, seconds, seconds)));
+        createSink(64, 1024).start();
+
+        // When a batch fills the segment, and a later one the next segment
+        sink.append(new EntranceEvent("courier123", "Ataşehir MMM Migros", time));
+        awaitWritten(1);
+        sink.append(new EntranceEvent("courier456", "Ataşehir MMM Migros", time.plusMinutes(1)));
+        awaitWritten(2);
+        sink.stop();
+
+        // Then nothing is counted as dropped and the events stay readable from the unrenamed file
+        assertEquals(2, sink.getWrittenEvents());
+        assertEquals(0, sink.getDroppedEvents());
+        assertEquals(2, sink.readEvents(time, time.plusHours(1)).size());
+    }
+
+    @Test
+    public void testFullQueueDropsInsteadOfBlocking() throws IOException {
+        // Not started, so nothing drains the queue
+        createSink(1024 * 1024, 2);
+        LocalDateTime time = LocalDateTime.of(2025, 3, 22, 10, 0);
+
+        assertTrue(sink.append(new EntranceEvent("courier1", "Ataşehir MMM Migros", time)));
+        assertTrue(sink.append(new EntranceEvent("courier2", "Ataşehir MMM Migros", time)));
+        assertFalse(sink.append(new EntranceEvent("courier3", "Ataşehir MMM Migros", time)));
+        assertEquals(1, sink.getDroppedEvents());
+    }
+
+    private void awaitWritten(long count) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sink.getWrittenEvents() < count && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(count, sink.getWrittenEvents());
+    }
+}
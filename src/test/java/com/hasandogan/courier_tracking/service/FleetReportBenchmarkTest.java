@@ -0,0 +1,80 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.CourierReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures fleet report throughput at increasing parallelism.
+ * Run with {@code mvn test -Dtest=FleetReportBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class FleetReportBenchmarkTest {
+
+    private static final int COURIERS = 5_000;
+    private static final int POINTS_PER_COURIER = 200;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void benchmarkFleetReportScaling() {
+        CourierLocationService service = new CourierLocationService();
+        populate(service);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                // Warm up once before measuring
+                run(service, pool);
+                long start = System.nanoTime();
+                for (int i = 0; i < ROUNDS; i++) {
+                    assertEquals(COURIERS, run(service, pool));
+                }
+                double seconds = (System.nanoTime() - start) / 1e9 / ROUNDS;
+                System.out.printf("parallelism=%d: %.3f s per report, %.0f points/s%n",
+                        parallelism, seconds, COURIERS * (double) POINTS_PER_COURIER / seconds);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private long run(CourierLocationService service, ForkJoinPool pool) {
+        LongAdder reports = new LongAdder();
+        service.forEachCourierReport(pool, (CourierReport report) -> reports.increment());
+        return reports.sum();
+    }
+
+    // Fills the trajectories directly so the benchmark does not depend on the native H3 library
+    @SuppressWarnings("unchecked")
+    private void populate(CourierLocationService service) {
+        Map<String, List<CourierLocation>> courierLocations =
+                (Map<String, List<CourierLocation>>) ReflectionTestUtils.getField(service, "courierLocations");
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 22, 8, 0);
+        for (int c = 0; c < COURIERS; c++) {
+            String courierId = "courier" + c;
+            List<CourierLocation> locations = new ArrayList<>(POINTS_PER_COURIER);
+            double lat = 40.9 + random.nextDouble() * 0.2;
+            double lng = 28.9 + random.nextDouble() * 0.3;
+            for (int p = 0; p < POINTS_PER_COURIER; p++) {
+                lat += (random.nextDouble() - 0.5) * 0.001;
+                lng += (random.nextDouble() - 0.5) * 0.001;
+                locations.add(new CourierLocation(start.plusSeconds(p * 10L), courierId, lat, lng));
+            }
+            courierLocations.put(courierId, locations);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.MemoryFootprint;
+import com.hasandogan.courier_tracking.model.StructureFootprint;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures what a courier and a stored ping cost on the heap with JOL. The limits are a little above the
+ * current footprint, so a storage change that makes either noticeably bigger fails here first.
+ */
+public class HeapFootprintTest {
+
+    private static final long MAX_BYTES_PER_POINT = 256;
+    private static final long MAX_BYTES_PER_COURIER = 1_200; // including its first ping
+
+    // Non-zero nanos, LocalTime caches whole hours
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 22, 10, 0, 0, 123_000_000);
+
+    @Test
+    public void testBytesPerPoint() {
+        long smaller = measure(record(10, 1_000));
+        long larger = measure(record(10, 2_000));
+
+        long bytesPerPoint = (larger - smaller) / (10 * 1_000);
+        assertTrue(bytesPerPoint <= MAX_BYTES_PER_POINT,
+                "A stored ping takes " + bytesPerPoint + " bytes, limit " + MAX_BYTES_PER_POINT);
+    }
+
+    @Test
+    public void testBytesPerCourier() {
+        long smaller = measure(record(1_000, 1));
+        long larger = measure(record(2_000, 1));
+
+        long bytesPerCourier = (larger - smaller) / 1_000;
+        assertTrue(bytesPerCourier <= MAX_BYTES_PER_COURIER,
+                "A courier with one ping takes " + bytesPerCourier + " bytes, limit " + MAX_BYTES_PER_COURIER);
+    }
+
+    @Test
+    public void testEstimateMatchesMeasurement() {
+        // The estimate assumes compressed oops and class pointers
+        assumeTrue(VM.current().objectHeaderSize() == 12 && VM.current().sizeOfField("java.lang.Object") == 4);
+        CourierLocationService service = record(100, 500);
+
+        MemoryFootprint footprint = service.getMemoryFootprint();
+        long estimated = footprint.getStructures().stream()
+                .filter(s -> s.getName().equals("courierLocations") || s.getName().equals("courierStates"))
+                .mapToLong(StructureFootprint::getBytes)
+                .sum();
+        long measured = measure(service);
+
+        assertEquals(measured, estimated, measured * 0.05);
+        assertEquals(100, footprint.getCouriers());
+        assertEquals(100 * 500, footprint.getPoints());
+        assertTrue(footprint.getBytesPerPoint() > 0 && footprint.getBytesPerPoint() <= MAX_BYTES_PER_POINT);
+        assertTrue(footprint.getBytesPerCourier() > 0);
+    }
+
+    @Test
+    public void testEmptyFootprint() {
+        MemoryFootprint footprint = new CourierLocationService().getMemoryFootprint();
+
+        assertEquals(0, footprint.getCouriers());
+        assertEquals(0, footprint.getPoints());
+        assertEquals(0, footprint.getBytesPerPoint());
+        assertEquals(4, footprint.getStructures().size());
+    }
+
+    private static CourierLocationService record(int couriers, int pointsPerCourier) {
+        CourierLocationService service = new CourierLocationService();
+        for (int c = 0; c < couriers; c++) {
+            for (int p = 0; p < pointsPerCourier; p++) {
+                // A fresh id per ping, as deserialized from a request
+                service.recordLocation(new CourierLocation(
+                        START.plusSeconds(30L * p), "courier-" + c, 40.99 + p * 1e-4, 29.12));
+            }
+        }
+        return service;
+    }
+
+    private static long measure(CourierLocationService service) {
+        return GraphLayout.parseInstance(
+                ReflectionTestUtils.getField(service, "courierLocations"),
+                ReflectionTestUtils.getField(service, "courierStates")).totalSize();
+    }
+}
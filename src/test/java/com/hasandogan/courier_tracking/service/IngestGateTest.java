@@ -0,0 +1,140 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.IngestStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class IngestGateTest {
+
+    @Mock
+    private CourierLocationService courierLocationService;
+
+    private IngestGate ingestGate;
+
+    private final LocalDateTime now = LocalDateTime.of(2025, 3, 22, 10, 0);
+
+    @BeforeEach
+    public void setup() {
+        // One processing slot, generous rate limit, room for one deferred courier
+        ingestGate = new IngestGate(courierLocationService, 1, 1000, 1000, 1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ingestGate.stop();
+    }
+
+    @Test
+    public void testAdmit_AcceptedWhileSlotsAvailable() {
+        CourierLocation location = new CourierLocation(now, "courier123", 40.9923307, 29.1244229);
+
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", location));
+        ingestGate.release();
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", location));
+    }
+
+    @Test
+    public void testAdmit_SaturatedPingsCoalescePerCourier() {
+        CourierLocation first = new CourierLocation(now, "courier123", 40.9923307, 29.1244229);
+        CourierLocation second = new CourierLocation(now.plusSeconds(5), "courier123", 40.9923400, 29.1244300);
+        CourierLocation third = new CourierLocation(now.plusSeconds(10), "courier123", 40.9923500, 29.1244400);
+        when(courierLocationService.recordLocation(any(CourierLocation.class))).thenReturn(true);
+
+        // Hold the only slot
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", first));
+        assertEquals(IngestGate.Admission.COALESCED, ingestGate.admit("client", second));
+        assertEquals(IngestGate.Admission.COALESCED, ingestGate.admit("client", third));
+
+        // Every point reaches distance accounting
+        verify(courierLocationService).recordLocation(second);
+        verify(courierLocationService).recordLocation(third);
+
+        // Only the newest pending ping runs store detection
+        ingestGate.start();
+        verify(courierLocationService, timeout(2000)).detectStoreEntrance(third);
+        verify(courierLocationService, never()).detectStoreEntrance(second);
+
+        IngestStats stats = ingestGate.getStats();
+        assertEquals(2, stats.getCoalesced());
+        assertEquals(1, stats.getSupersededDetections());
+    }
+
+    @Test
+    public void testAdmit_OverloadedWhenNothingCanBeDeferred() {
+        CourierLocation busy = new CourierLocation(now, "courier1", 40.9923307, 29.1244229);
+        CourierLocation deferred = new CourierLocation(now, "courier2", 40.9923307, 29.1244229);
+        CourierLocation rejected = new CourierLocation(now, "courier3", 40.9923307, 29.1244229);
+        when(courierLocationService.recordLocation(deferred)).thenReturn(true);
+
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", busy));
+        assertEquals(IngestGate.Admission.COALESCED, ingestGate.admit("client", deferred));
+        assertEquals(IngestGate.Admission.OVERLOADED, ingestGate.admit("client", rejected));
+
+        verify(courierLocationService, never()).recordLocation(rejected);
+        assertEquals(1, ingestGate.getStats().getOverloaded());
+    }
+
+    @Test
+    public void testAdmit_RateLimitedPerClient() {
+        ingestGate = new IngestGate(courierLocationService, 10, 0.001, 2, 10);
+        CourierLocation location = new CourierLocation(now, "courier123", 40.9923307, 29.1244229);
+
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", location));
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", location));
+        assertEquals(IngestGate.Admission.RATE_LIMITED, ingestGate.admit("client", location));
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("other", location));
+        assertEquals(1, ingestGate.getStats().getRateLimited());
+    }
+
+    @Test
+    public void testEvictIdleClients_FreshBucketAfterIdle() {
+        ingestGate = new IngestGate(courierLocationService, 10, 0.001, 1, 10);
+        CourierLocation location = new CourierLocation(now, "courier123", 40.9923307, 29.1244229);
+
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", location));
+        assertEquals(IngestGate.Admission.RATE_LIMITED, ingestGate.admit("client", location));
+
+        ingestGate.evictIdleClients(System.nanoTime());
+        assertEquals(IngestGate.Admission.RATE_LIMITED, ingestGate.admit("client", location));
+        ingestGate.evictIdleClients(System.nanoTime() + TimeUnit.MINUTES.toNanos(2));
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", location));
+    }
+
+    @Test
+    public void testClientKey_UntrustedHeaderFallsBackToRemoteAddress() {
+        assertEquals("device-1", ingestGate.clientKey("device-1", "10.0.0.1"));
+        assertEquals("10.0.0.1", ingestGate.clientKey(null, "10.0.0.1"));
+
+        IngestGate untrusting = new IngestGate(courierLocationService, 1, 1000, 1000, 1, false);
+        assertEquals("10.0.0.1", untrusting.clientKey("device-1", "10.0.0.1"));
+        assertEquals("unknown", untrusting.clientKey("device-1", null));
+    }
+
+    @Test
+    public void testAdmit_DuplicateIsNotDeferred() {
+        CourierLocation busy = new CourierLocation(now, "courier1", 40.9923307, 29.1244229);
+        CourierLocation duplicate = new CourierLocation(now, "courier2", 40.9923307, 29.1244229);
+
+        assertEquals(IngestGate.Admission.ACCEPTED, ingestGate.admit("client", busy));
+        // recordLocation reports the resend as a duplicate
+        assertEquals(IngestGate.Admission.COALESCED, ingestGate.admit("client", duplicate));
+
+        assertEquals(0, ingestGate.getStats().getPendingDetections());
+    }
+}
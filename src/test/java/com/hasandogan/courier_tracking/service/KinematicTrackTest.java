@@ -0,0 +1,75 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.util.DistanceCalculator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KinematicTrackTest {
+
+    private static final double MAX_SPEED = 55;
+    private static final long SECOND = 1_000_000_000L;
+
+    // Kadıköy side and a glitch onto the European side of the Bosphorus
+    private static final double ASIA_LAT = 40.9923307;
+    private static final double ASIA_LNG = 29.1244229;
+    private static final double NEARBY_LAT = 40.9930;
+    private static final double NEARBY_LNG = 29.1250;
+    private static final double EUROPE_LAT = 41.055783;
+    private static final double EUROPE_LNG = 29.0210292;
+
+    @Test
+    public void testPlausibleTrackCountsEveryStep() {
+        KinematicTrack track = new KinematicTrack();
+        assertTrue(track.update(true, 0, ASIA_LAT, ASIA_LNG, MAX_SPEED));
+        assertTrue(track.update(true, 60 * SECOND, NEARBY_LAT, NEARBY_LNG, MAX_SPEED));
+
+        double step = DistanceCalculator.haversineMeters(ASIA_LAT, ASIA_LNG, NEARBY_LAT, NEARBY_LNG);
+        assertEquals(step, track.rawDistance, 1e-9);
+        assertEquals(step, track.filteredDistance, 1e-9);
+        assertEquals(step / 60, track.currentSpeed, 1e-9);
+        assertEquals(step / 60, track.averageSpeed(), 1e-9);
+        assertEquals(0, track.rejectedJumps);
+    }
+
+    @Test
+    public void testSingleGlitchIsLeftOutOfFilteredDistance() {
+        KinematicTrack track = new KinematicTrack();
+        track.update(true, 0, ASIA_LAT, ASIA_LNG, MAX_SPEED);
+        // 11 km in 10 seconds
+        assertFalse(track.update(true, 10 * SECOND, EUROPE_LAT, EUROPE_LNG, MAX_SPEED));
+        assertTrue(track.update(true, 20 * SECOND, NEARBY_LAT, NEARBY_LNG, MAX_SPEED));
+
+        double step = DistanceCalculator.haversineMeters(ASIA_LAT, ASIA_LNG, NEARBY_LAT, NEARBY_LNG);
+        assertEquals(step, track.filteredDistance, 1e-9);
+        assertTrue(track.rawDistance > 20_000);
+        assertEquals(1, track.rejectedJumps);
+        assertTrue(track.maxSpeed < MAX_SPEED);
+    }
+
+    @Test
+    public void testConsistentPingsAfterJumpReAnchor() {
+        KinematicTrack track = new KinematicTrack();
+        track.update(true, 0, ASIA_LAT, ASIA_LNG, MAX_SPEED);
+        assertFalse(track.update(true, 10 * SECOND, EUROPE_LAT, EUROPE_LNG, MAX_SPEED));
+        // The courier really is on the European side now
+        assertTrue(track.update(true, 20 * SECOND, EUROPE_LAT + 0.0005, EUROPE_LNG, MAX_SPEED));
+        assertTrue(track.update(true, 30 * SECOND, EUROPE_LAT + 0.001, EUROPE_LNG, MAX_SPEED));
+
+        assertEquals(1, track.rejectedJumps);
+        assertEquals(DistanceCalculator.haversineMeters(EUROPE_LAT, EUROPE_LNG, EUROPE_LAT + 0.001, EUROPE_LNG),
+                track.filteredDistance, 1e-6);
+    }
+
+    @Test
+    public void testLateAndUntimedPingsOnlyCountAsRaw() {
+        KinematicTrack track = new KinematicTrack();
+        track.update(true, 60 * SECOND, ASIA_LAT, ASIA_LNG, MAX_SPEED);
+        assertTrue(track.update(true, 0, NEARBY_LAT, NEARBY_LNG, MAX_SPEED));
+        assertTrue(track.update(false, 0, ASIA_LAT, ASIA_LNG, MAX_SPEED));
+
+        assertEquals(0.0, track.filteredDistance);
+        assertTrue(track.rawDistance > 0);
+        assertEquals(0, track.rejectedJumps);
+    }
+}
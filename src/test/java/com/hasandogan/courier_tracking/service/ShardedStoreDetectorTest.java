@@ -0,0 +1,260 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.DetectionShardStats;
+import com.hasandogan.courier_tracking.model.Store;
+import com.hasandogan.courier_tracking.util.LongObjectHashMap;
+import com.uber.h3core.H3Core;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class ShardedStoreDetectorTest {
+
+    private static final int SHARDS = 2;
+
+    private static final long ASIAN_SIDE_CELL = 0x8b1ec5b3c3a1fffL;
+    private static final long EUROPEAN_SIDE_CELL = 0x8b1ec5b3c3a2fffL;
+    private static final long FAR_CELL = 0x8b1ec5b3c3a3fffL;
+
+    @Mock
+    private H3Core h3Core;
+
+    private ShardedStoreDetector detector;
+
+    // Matches seen by the shard workers, with the thread that saw them
+    private final BlockingQueue<String> matches = new LinkedBlockingQueue<>();
+    private final Map<String, String> matchingThreads = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void setup() {
+        long asianRegion = 0x831ec5fffffffffL;
+        long europeanRegion = asianRegion + 1;
+        while (ShardedStoreDetector.shardOf(europeanRegion, SHARDS) == ShardedStoreDetector.shardOf(asianRegion, SHARDS)) {
+            europeanRegion++;
+        }
+        doReturn(asianRegion).when(h3Core).cellToParent(eq(ASIAN_SIDE_CELL), eq(3));
+        doReturn(asianRegion).when(h3Core).cellToParent(eq(FAR_CELL), eq(3));
+        doReturn(europeanRegion).when(h3Core).cellToParent(eq(EUROPEAN_SIDE_CELL), eq(3));
+
+        detector = ShardedStoreDetector.start(h3Core, detectorIndex(), null, SHARDS,
+                (location, cell, stores, cache) -> {
+                    matchingThreads.put(stores[0].getName(), Thread.currentThread().getName());
+                    matches.add(location.getCourierId() + "@" + stores[0].getName());
+                });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        detector.stop();
+    }
+
+    private static StoreCellIndex detectorIndex() {
+        LongObjectHashMap<Store[]> candidates = new LongObjectHashMap<>(4);
+        candidates.put(ASIAN_SIDE_CELL, new Store[] {createStore("Ataşehir MMM Migros")});
+        candidates.put(EUROPEAN_SIDE_CELL, new Store[] {createStore("Ortaköy MMM Migros")});
+        return new StoreCellIndex(candidates);
+    }
+
+    private static Store createStore(String name) {
+        Store store = new Store();
+        store.setName(name);
+        return store;
+    }
+
+    private static CourierLocation ping(String courierId, int minute) {
+        return new CourierLocation(LocalDateTime.of(2025, 3, 22, 10, minute), courierId, 41.0, 29.0);
+    }
+
+    private long processedPings() {
+        return detector.getStats().stream().mapToLong(DetectionShardStats::getProcessedPings).sum();
+    }
+
+    @Test
+    public void testPingsAreMatchedOnTheShardOwningTheirRegion() throws InterruptedException {
+        detector.submit(ping("courier123", 0), ASIAN_SIDE_CELL);
+        detector.submit(ping("courier456", 0), EUROPEAN_SIDE_CELL);
+
+        assertNotNull(matches.poll(5, TimeUnit.SECONDS));
+        assertNotNull(matches.poll(5, TimeUnit.SECONDS));
+        assertNotEquals(matchingThreads.get("Ataşehir MMM Migros"), matchingThreads.get("Ortaköy MMM Migros"));
+    }
+
+    @Test
+    public void testPingsAwayFromStoresAreNotMatched() throws InterruptedException {
+        detector.submit(ping("courier123", 0), FAR_CELL);
+        detector.submit(ping("courier123", 1), ASIAN_SIDE_CELL);
+
+        // Processed in order on one shard, so the first match is the second ping
+        assertEquals("courier123@Ataşehir MMM Migros", matches.poll(5, TimeUnit.SECONDS));
+        assertNull(matches.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testCourierCrossingRegionsIsHandedOff() throws InterruptedException {
+        detector.submit(ping("courier123", 0), ASIAN_SIDE_CELL);
+        detector.submit(ping("courier123", 1), EUROPEAN_SIDE_CELL);
+        detector.submit(ping("courier123", 2), ASIAN_SIDE_CELL);
+
+        // The two shards run concurrently, so only the set of matches is fixed
+        List<String> seen = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            seen.add(matches.poll(5, TimeUnit.SECONDS));
+        }
+        Collections.sort(seen);
+        assertEquals(List.of("courier123@Ataşehir MMM Migros", "courier123@Ataşehir MMM Migros",
+                "courier123@Ortaköy MMM Migros"), seen);
+
+        // The processed counter is bumped right after the match
+        long deadline = System.currentTimeMillis() + 5000;
+        while (processedPings() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        List<DetectionShardStats> stats = detector.getStats();
+        assertEquals(SHARDS, stats.size());
+        assertEquals(2, stats.stream().mapToLong(DetectionShardStats::getHandoffs).sum());
+        assertEquals(3, stats.stream().mapToLong(DetectionShardStats::getProcessedPings).sum());
+        assertEquals(2, stats.stream().mapToInt(DetectionShardStats::getCells).sum());
+    }
+
+    @Test
+    public void testConcurrentHandoffsLeaveCourierOnOneShard() throws Exception {
+        int threads = 4;
+        int pingsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> submitters = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                submitters.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < pingsPerThread; i++) {
+                        // Every thread keeps moving the courier across the region border
+                        long cell = (i + offset) % 2 == 0 ? ASIAN_SIDE_CELL : EUROPEAN_SIDE_CELL;
+                        detector.submit(ping("courier123", 0), cell);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> submitter : submitters) {
+                submitter.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Once every task ran, only the shard the courier was last routed to may still hold it
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((processedPings() < threads * pingsPerThread || couriersOnShards() != 1
+                || detector.getStats().stream().anyMatch(stat -> stat.getQueuedPings() > 0))
+                && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(threads * pingsPerThread, processedPings());
+        assertEquals(1, couriersOnShards());
+    }
+
+    @Test
+    public void testFullShardDoesNotHoldUpOtherShards() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedStoreDetector stalled = ShardedStoreDetector.start(h3Core, detectorIndex(), null, SHARDS,
+                (location, cell, stores, cache) -> {
+                    if (cell == ASIAN_SIDE_CELL) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Given the Asian side shard stuck on one ping with a full queue behind it
+            for (int i = 0; i <= ShardedStoreDetector.QUEUE_CAPACITY; i++) {
+                stalled.submit(ping("courier123", 0), ASIAN_SIDE_CELL);
+            }
+            Future<Boolean> blocked = executor.submit(() -> stalled.submit(ping("courier123", 1), ASIAN_SIDE_CELL));
+
+            // When another courier pings on the European side
+            Future<Boolean> other = executor.submit(() -> stalled.submit(ping("courier456", 0), EUROPEAN_SIDE_CELL));
+
+            // Then it is queued right away while the first courier still waits for room
+            assertTrue(other.get(5, TimeUnit.SECONDS));
+            assertFalse(blocked.isDone());
+            release.countDown();
+            assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            stalled.stop();
+        }
+    }
+
+    @Test
+    public void testSubmitAfterStopIsRefused() {
+        detector.stop();
+
+        assertFalse(detector.submit(ping("courier123", 0), ASIAN_SIDE_CELL));
+        assertEquals(0, processedPings());
+    }
+
+    @Test
+    public void testCourierCachesAreCountedInTheFootprint() {
+        detector.submit(ping("courier123", 0), ASIAN_SIDE_CELL);
+        detector.submit(ping("courier456", 0), EUROPEAN_SIDE_CELL);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((processedPings() < 2 || couriersOnShards() < 2) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        // One courier on each shard, neither has entered a store through the cache
+        assertEquals(2, detector.getCourierCount());
+        assertEquals(2 * (HeapFootprint.hashMap(1) + HeapFootprint.DETECTION_CACHE), detector.estimateCourierBytes());
+    }
+
+    @Test
+    public void testDetectionCacheDropsRepeatedEntrancesWithinAMinute() {
+        ShardedStoreDetector.DetectionCache cache = new ShardedStoreDetector.DetectionCache();
+        LocalDateTime entrance = LocalDateTime.of(2025, 3, 22, 10, 0);
+
+        assertTrue(cache.mayEnter("Ataşehir MMM Migros", entrance));
+        cache.entered("Ataşehir MMM Migros", entrance);
+
+        assertFalse(cache.mayEnter("Ataşehir MMM Migros", entrance.plusSeconds(30)));
+        assertFalse(cache.mayEnter("Ataşehir MMM Migros", entrance.minusSeconds(30)));
+        assertTrue(cache.mayEnter("Ataşehir MMM Migros", entrance.plusMinutes(1)));
+        assertTrue(cache.mayEnter("Ortaköy MMM Migros", entrance.plusSeconds(30)));
+    }
+
+    private int couriersOnShards() {
+        return detector.getStats().stream().mapToInt(DetectionShardStats::getCouriers).sum();
+    }
+}
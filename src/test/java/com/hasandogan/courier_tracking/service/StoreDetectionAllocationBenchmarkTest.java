@@ -0,0 +1,107 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.Store;
+import com.uber.h3core.H3Core;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares heap allocation per ping of the previous String-address store detection against the
+ * long-based cell index with the stationary-courier fast path.
+ * Run with {@code mvn test -Dtest=StoreDetectionAllocationBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class StoreDetectionAllocationBenchmarkTest {
+
+    private static final int PINGS = 200_000;
+    private static final int RESOLUTION = 11;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void benchmarkAllocationPerPing() {
+        CourierLocationService service = new CourierLocationService();
+        ReflectionTestUtils.setField(service, "storesJsonFile", new ClassPathResource("stores.json"));
+        service.initializeH3();
+        service.loadStores();
+        H3Core h3Core = (H3Core) ReflectionTestUtils.getField(service, "h3Core");
+        List<Store> stores = (List<Store>) ReflectionTestUtils.getField(service, "stores");
+
+        CourierLocation[] moving = createPings("moving", false);
+        CourierLocation[] measured = createPings("measured", false);
+        CourierLocation[] stationary = createPings("stationary", true);
+
+        // Warm up both paths
+        legacyDetection(h3Core, stores, moving);
+        for (CourierLocation location : moving) {
+            service.processLocation(location);
+        }
+
+        double legacy = bytesPerPing(() -> legacyDetection(h3Core, stores, moving));
+        double movingBytes = bytesPerPing(() -> {
+            for (CourierLocation location : measured) {
+                service.processLocation(location);
+            }
+        });
+        double stationaryBytes = bytesPerPing(() -> {
+            for (CourierLocation location : stationary) {
+                service.processLocation(location);
+            }
+        });
+
+        System.out.printf("legacy String detection: %.1f bytes/ping%n", legacy);
+        System.out.printf("long cell index, moving courier: %.1f bytes/ping (includes trajectory storage)%n", movingBytes);
+        System.out.printf("long cell index, stationary courier: %.1f bytes/ping (includes trajectory storage)%n", stationaryBytes);
+        assertTrue(stationaryBytes < legacy);
+    }
+
+    private static void legacyDetection(H3Core h3Core, List<Store> stores, CourierLocation[] pings) {
+        for (CourierLocation location : pings) {
+            String courierIndex = h3Core.latLngToCellAddress(location.getLatitude(), location.getLongitude(), RESOLUTION);
+            for (Store store : stores) {
+                String storeIndex = h3Core.latLngToCellAddress(store.getLat(), store.getLng(), RESOLUTION);
+                if (!courierIndex.equals(storeIndex)) {
+                    Set<String> neighbors = new HashSet<>(h3Core.gridDisk(storeIndex, 1));
+                    neighbors.contains(courierIndex);
+                }
+            }
+        }
+    }
+
+    private double bytesPerPing(Runnable work) {
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        work.run();
+        return (threads.getThreadAllocatedBytes(threadId) - before) / (double) PINGS;
+    }
+
+    private static CourierLocation[] createPings(String courierId, boolean stationary) {
+        Random random = new Random(7);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 22, 8, 0);
+        CourierLocation[] pings = new CourierLocation[PINGS];
+        double lat = 41.02;
+        double lng = 28.95;
+        for (int i = 0; i < PINGS; i++) {
+            if (!stationary) {
+                lat += (random.nextDouble() - 0.5) * 0.002;
+                lng += (random.nextDouble() - 0.5) * 0.002;
+            }
+            pings[i] = new CourierLocation(start.plusSeconds(i), courierId, lat, lng);
+        }
+        return pings;
+    }
+}
@@ -0,0 +1,95 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.GeoPoint;
+import com.hasandogan.courier_tracking.model.Store;
+import com.uber.h3core.H3Core;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class StoreGeofenceIndexTest {
+
+    private static final long INNER = 0x8b1ec5b3c3a1fffL;
+    private static final long EDGE = 0x8b1ec5b3c3a2fffL;
+    private static final long OUTSIDE = 0x8b1ec5b3c3a3fffL;
+    private static final long ELSEWHERE = 0x8b1ec5b3c3a4fffL;
+
+    @Mock
+    private H3Core h3Core;
+
+    private Store mallStore;
+    private Store pointStore;
+
+    @BeforeEach
+    public void setup() {
+        mallStore = new Store();
+        mallStore.setName("Ataşehir MMM Migros");
+        mallStore.setLat(40.9923307);
+        mallStore.setLng(29.1244229);
+        mallStore.setPolygon(List.of(
+                new GeoPoint(40.9915, 29.1235),
+                new GeoPoint(40.9915, 29.1255),
+                new GeoPoint(40.9930, 29.1255),
+                new GeoPoint(40.9930, 29.1235)
+        ));
+
+        pointStore = new Store();
+        pointStore.setName("Ortaköy MMM Migros");
+        pointStore.setLat(41.055783);
+        pointStore.setLng(29.0210292);
+
+        // INNER is surrounded by filled cells, EDGE touches the OUTSIDE ring
+        doReturn(List.of(INNER, EDGE)).when(h3Core).polygonToCells(anyList(), anyList(), anyInt());
+        doReturn(List.of(INNER, EDGE)).when(h3Core).gridDisk(eq(INNER), anyInt());
+        doReturn(List.of(EDGE, INNER, OUTSIDE)).when(h3Core).gridDisk(eq(EDGE), anyInt());
+        doReturn(EDGE).when(h3Core).latLngToCell(anyDouble(), anyDouble(), anyInt());
+    }
+
+    @Test
+    public void testInteriorCell_MatchesWithoutPolygonTest() {
+        StoreGeofenceIndex index = StoreGeofenceIndex.build(h3Core, List.of(mallStore, pointStore), 11);
+
+        // Coordinates are outside the polygon on purpose: interior cells skip the exact test
+        List<Store> result = index.findContaining(INNER, 0, 0);
+
+        assertEquals(List.of(mallStore), result);
+    }
+
+    @Test
+    public void testBoundaryCell_UsesExactPolygonTest() {
+        StoreGeofenceIndex index = StoreGeofenceIndex.build(h3Core, List.of(mallStore, pointStore), 11);
+
+        assertEquals(List.of(mallStore), index.findContaining(EDGE, 40.9923307, 29.1244229));
+        assertTrue(index.findContaining(EDGE, 40.9940, 29.1244229).isEmpty());
+        assertTrue(index.findContaining(OUTSIDE, 40.9940, 29.1244229).isEmpty());
+    }
+
+    @Test
+    public void testUnknownCell_NoMatch() {
+        StoreGeofenceIndex index = StoreGeofenceIndex.build(h3Core, List.of(mallStore, pointStore), 11);
+
+        assertTrue(index.findContaining(ELSEWHERE, 40.9923307, 29.1244229).isEmpty());
+    }
+
+    @Test
+    public void testPointOnlyStores_AreNotIndexed() {
+        StoreGeofenceIndex index = StoreGeofenceIndex.build(h3Core, List.of(pointStore), 11);
+
+        assertTrue(index.isEmpty());
+        verify(h3Core, never()).polygonToCells(anyList(), anyList(), anyInt());
+    }
+}
@@ -0,0 +1,96 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandogan.courier_tracking.model.Store;
+import com.uber.h3core.H3Core;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the startup cost of parsing {@code stores.json} and building the H3 indexes against
+ * loading the prebuilt binary index the way the service does, staleness check of {@code stores.json}
+ * included, for the shipped catalogue and a synthetic 100k-store one.
+ * Run with {@code mvn test -Dtest=StoreIndexStartupBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class StoreIndexStartupBenchmarkTest {
+
+    private static final int ROUNDS = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void benchmarkStartup() throws IOException {
+        long start = System.nanoTime();
+        H3Core h3Core = H3Core.newInstance();
+        System.out.printf("H3 native init: %.1f ms (deferred off the startup path)%n", (System.nanoTime() - start) / 1e6);
+
+        byte[] shippedJson;
+        try (InputStream inputStream = new ClassPathResource("stores.json").getInputStream()) {
+            shippedJson = inputStream.readAllBytes();
+        }
+        measure(h3Core, "5 stores", shippedJson);
+        measure(h3Core, "100k stores", objectMapper.writeValueAsBytes(createStores(100_000)));
+    }
+
+    private void measure(H3Core h3Core, String label, byte[] json) throws IOException {
+        Path index = directory.resolve(label.replace(' ', '-') + ".idx");
+        Path source = Files.write(directory.resolve(label.replace(' ', '-') + ".json"), json);
+        StoreIndexCompiler.compile(h3Core, json, Arrays.asList(objectMapper.readValue(json, Store[].class)), index);
+
+        long jsonBest = Long.MAX_VALUE;
+        long binaryBest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Store> stores = Arrays.asList(objectMapper.readValue(json, Store[].class));
+            StoreCellIndex cellIndex = StoreCellIndex.build(h3Core, stores, CourierLocationService.H3_RESOLUTION);
+            StorePrefilter.build(h3Core, stores, null, CourierLocationService.PREFILTER_RESOLUTION);
+            jsonBest = Math.min(jsonBest, System.nanoTime() - start);
+
+            // H3 is left unset, as while it still loads in the background
+            CourierLocationService service = new CourierLocationService();
+            ReflectionTestUtils.setField(service, "storesJsonFile", new FileSystemResource(source));
+            ReflectionTestUtils.setField(service, "storesBinaryIndexLocation", index.toUri().toString());
+            start = System.nanoTime();
+            service.loadStores();
+            binaryBest = Math.min(binaryBest, System.nanoTime() - start);
+            assertTrue((Boolean) ReflectionTestUtils.getField(service, "binaryIndexLoaded"));
+            StoreCellIndex loaded = (StoreCellIndex) ReflectionTestUtils.getField(service, "storeCellIndex");
+            assertEquals(cellIndex.size(), loaded.size());
+        }
+        System.out.printf("%s: stores.json + H3 index build %.1f ms, checked binary index %.1f ms (%d bytes)%n",
+                label, jsonBest / 1e6, binaryBest / 1e6, Files.size(index));
+    }
+
+    private static List<Store> createStores(int count) {
+        Random random = new Random(42);
+        List<Store> stores = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Store store = new Store();
+            store.setName("Store " + i);
+            store.setLat(40.8 + random.nextDouble() * 0.4);
+            store.setLng(28.6 + random.nextDouble() * 0.8);
+            stores.add(store);
+        }
+        return stores;
+    }
+}
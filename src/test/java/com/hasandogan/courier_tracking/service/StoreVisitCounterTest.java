@@ -0,0 +1,126 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.StoreVisitCount;
+import com.hasandogan.courier_tracking.model.VisitBucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StoreVisitCounterTest {
+
+    private StoreVisitCounter storeVisitCounter;
+
+    @BeforeEach
+    public void setup() {
+        storeVisitCounter = new StoreVisitCounter();
+    }
+
+    @Test
+    public void testTopStores_OrderedByVisits() {
+        LocalDateTime time = LocalDateTime.of(2025, 3, 22, 10, 0);
+        storeVisitCounter.recordVisit("Ataşehir MMM Migros", time);
+        storeVisitCounter.recordVisit("Ataşehir MMM Migros", time.plusMinutes(2));
+        storeVisitCounter.recordVisit("Ortaköy MMM Migros", time.plusMinutes(3));
+
+        List<StoreVisitCount> top = storeVisitCounter.getTopStores(StoreVisitCounter.Granularity.HOUR, 1, 10);
+
+        assertEquals(2, top.size());
+        assertEquals("Ataşehir MMM Migros", top.get(0).getStoreName());
+        assertEquals(2, top.get(0).getVisits());
+        assertEquals("Ortaköy MMM Migros", top.get(1).getStoreName());
+        assertEquals(1, top.get(1).getVisits());
+    }
+
+    @Test
+    public void testTopStores_RespectsLimit() {
+        LocalDateTime time = LocalDateTime.of(2025, 3, 22, 10, 0);
+        storeVisitCounter.recordVisit("Ataşehir MMM Migros", time);
+        storeVisitCounter.recordVisit("Ortaköy MMM Migros", time);
+        storeVisitCounter.recordVisit("Ortaköy MMM Migros", time);
+
+        List<StoreVisitCount> top = storeVisitCounter.getTopStores(StoreVisitCounter.Granularity.DAY, 1, 1);
+
+        assertEquals(1, top.size());
+        assertEquals("Ortaköy MMM Migros", top.get(0).getStoreName());
+    }
+
+    @Test
+    public void testTimeSeries_FiveMinuteBuckets() {
+        LocalDateTime time = LocalDateTime.of(2025, 3, 22, 10, 0);
+        storeVisitCounter.recordVisit("Ataşehir MMM Migros", time);
+        storeVisitCounter.recordVisit("Ataşehir MMM Migros", time.plusMinutes(1));
+        storeVisitCounter.recordVisit("Ataşehir MMM Migros", time.plusMinutes(10));
+
+        List<VisitBucket> series = storeVisitCounter.getTimeSeries(
+                "Ataşehir MMM Migros", StoreVisitCounter.Granularity.FIVE_MINUTES, 3);
+
+        assertEquals(3, series.size());
+        assertEquals(time, series.get(0).getStart());
+        assertEquals(2, series.get(0).getVisits());
+        assertEquals(0, series.get(1).getVisits());
+        assertEquals(1, series.get(2).getVisits());
+    }
+
+    @Test
+    public void testOldBucketsRollOver() {
+        LocalDateTime time = LocalDateTime.of(2025, 3, 22, 10, 0);
+        storeVisitCounter.recordVisit("Ataşehir MMM Migros", time);
+        // Same slot in the circular array, one full day later
+        storeVisitCounter.recordVisit("Ataşehir MMM Migros", time.plusDays(1));
+
+        List<VisitBucket> series = storeVisitCounter.getTimeSeries(
+                "Ataşehir MMM Migros", StoreVisitCounter.Granularity.FIVE_MINUTES, 1);
+
+        assertEquals(1, series.size());
+        assertEquals(1, series.get(0).getVisits());
+    }
+
+    @Test
+    public void testNoVisits() {
+        assertTrue(storeVisitCounter.getTopStores(StoreVisitCounter.Granularity.HOUR, 24, 10).isEmpty());
+        assertTrue(storeVisitCounter.getTimeSeries("unknown", StoreVisitCounter.Granularity.HOUR, 24).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentIncrementsAcrossRollover() throws Exception {
+        // Every bucket is new when the threads reach it, so each one starts with a slot claim
+        StoreVisitCounter.RollingCounter counter = new StoreVisitCounter.RollingCounter(4);
+        int threads = 8;
+        int perBucket = 200;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (long bucket = 0; bucket < 50; bucket++) {
+                long current = bucket;
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(() -> {
+                        barrier.await();
+                        for (int i = 0; i < perBucket; i++) {
+                            counter.increment(current);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+                assertEquals(threads * perBucket, counter.get(current));
+                assertEquals(0, counter.get(current - 4));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
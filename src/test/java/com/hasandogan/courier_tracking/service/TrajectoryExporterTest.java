@@ -0,0 +1,142 @@
+package com.hasandogan.courier_tracking.service;
+
+import com.hasandogan.courier_tracking.model.CourierLocation;
+import com.hasandogan.courier_tracking.model.ExportSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrajectoryExporterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 22, 10, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testExportWritesColumnsThenIndexAndFooter() throws IOException {
+        CourierLocationService service = new CourierLocationService();
+        for (int i = 0; i < 3; i++) {
+            service.recordLocation(new CourierLocation(START.plusSeconds(10L * i), "courierB", 41.0 + i * 1e-4, 29.0));
+        }
+        service.recordLocation(new CourierLocation(START, "courierA", 40.99, 29.12));
+        service.recordLocation(new CourierLocation(null, "courierA", 40.98, 29.11));
+
+        Path file = directory.resolve("nested").resolve("export.ctrj");
+        ExportSummary summary = service.exportTrajectories(file);
+
+        assertEquals(2, summary.getCouriers());
+        assertEquals(5, summary.getPoints());
+        assertEquals(Files.size(file), summary.getBytes());
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(TrajectoryExporter.MAGIC, buffer.getInt());
+        assertEquals(TrajectoryExporter.VERSION, buffer.getInt());
+
+        // The fixed-size footer locates the index
+        int footer = buffer.limit() - TrajectoryExporter.FOOTER_BYTES;
+        long indexOffset = buffer.getLong(footer);
+        assertEquals(2, buffer.getInt(footer + 8));
+        assertEquals(TrajectoryExporter.MAGIC, buffer.getInt(footer + 12));
+
+        // Couriers in id order
+        buffer.position((int) indexOffset);
+        assertEquals("courierA", readId(buffer));
+        int countA = buffer.getInt();
+        long offsetA = buffer.getLong();
+        assertEquals("courierB", readId(buffer));
+        int countB = buffer.getInt();
+        long offsetB = buffer.getLong();
+        assertEquals(footer, buffer.position());
+        assertEquals(2, countA);
+        assertEquals(3, countB);
+        assertEquals(TrajectoryExporter.HEADER_BYTES, offsetA);
+        assertEquals(offsetA + countA * 24L, offsetB);
+        assertEquals(offsetB + countB * 24L, indexOffset);
+
+        assertEquals(epochNanos(START), buffer.getLong((int) offsetA));
+        assertEquals(TrajectoryExporter.NO_TIME, buffer.getLong((int) offsetA + 8));
+        assertEquals(40.99, buffer.getDouble((int) offsetA + countA * 8));
+        assertEquals(29.11, buffer.getDouble((int) offsetA + countA * 16 + 8));
+
+        List<CourierLocation> locations = service.getCourierLocations("courierB");
+        for (int i = 0; i < countB; i++) {
+            CourierLocation location = locations.get(i);
+            assertEquals(epochNanos(location.getTime()), buffer.getLong((int) offsetB + i * 8));
+            assertEquals(location.getLatitude(), buffer.getDouble((int) offsetB + countB * 8 + i * 8));
+            assertEquals(location.getLongitude(), buffer.getDouble((int) offsetB + countB * 16 + i * 8));
+        }
+    }
+
+    @Test
+    public void testStreamedExportMatchesFile() throws IOException {
+        CourierLocationService service = new CourierLocationService();
+        // More points than the initial block buffer holds
+        for (int i = 0; i < 10_000; i++) {
+            service.recordLocation(new CourierLocation(START.plusSeconds(i), "courier" + (i % 3), 41.0, 29.0 + i * 1e-6));
+        }
+
+        Path file = directory.resolve("export.ctrj");
+        service.exportTrajectories(file);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        ExportSummary summary = service.exportTrajectories(Channels.newChannel(streamed));
+
+        assertArrayEquals(Files.readAllBytes(file), streamed.toByteArray());
+        assertEquals(streamed.size(), summary.getBytes());
+        assertEquals(10_000, summary.getPoints());
+    }
+
+    @Test
+    public void testLongCourierIdKeepsIndexIntact() throws IOException {
+        CourierLocationService service = new CourierLocationService();
+        // Longer than a short length prefix can hold
+        String longId = "c".repeat(40_000);
+        service.recordLocation(new CourierLocation(START, longId, 41.0, 29.0));
+        service.recordLocation(new CourierLocation(START, "courierZ", 41.0, 29.0));
+
+        Path file = directory.resolve("long-id.ctrj");
+        service.exportTrajectories(file);
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        int footer = buffer.limit() - TrajectoryExporter.FOOTER_BYTES;
+        buffer.position((int) buffer.getLong(footer));
+        assertEquals(longId, readId(buffer));
+        assertEquals(1, buffer.getInt());
+        buffer.getLong();
+        assertEquals("courierZ", readId(buffer));
+        assertEquals(1, buffer.getInt());
+        buffer.getLong();
+        assertEquals(footer, buffer.position());
+    }
+
+    @Test
+    public void testEmptyExport() throws IOException {
+        Path file = directory.resolve("empty.ctrj");
+        ExportSummary summary = new CourierLocationService().exportTrajectories(file);
+
+        assertEquals(0, summary.getCouriers());
+        assertEquals(TrajectoryExporter.HEADER_BYTES + TrajectoryExporter.FOOTER_BYTES, Files.size(file));
+    }
+
+    private static String readId(ByteBuffer buffer) {
+        byte[] id = new byte[buffer.getInt()];
+        buffer.get(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private static long epochNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+}
@@ -0,0 +1,46 @@
+package com.hasandogan.courier_tracking.util;
+
+import com.hasandogan.courier_tracking.model.GeoPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PolygonUtilTest {
+
+    // Rough square around Ataşehir MMM Migros
+    private final List<GeoPoint> square = List.of(
+            new GeoPoint(40.9915, 29.1235),
+            new GeoPoint(40.9915, 29.1255),
+            new GeoPoint(40.9930, 29.1255),
+            new GeoPoint(40.9930, 29.1235)
+    );
+
+    @Test
+    public void testContains_PointInside() {
+        assertTrue(PolygonUtil.contains(square, 40.9923307, 29.1244229));
+    }
+
+    @Test
+    public void testContains_PointOutside() {
+        assertFalse(PolygonUtil.contains(square, 40.9940, 29.1244229));
+        assertFalse(PolygonUtil.contains(square, 40.9923307, 29.1260));
+    }
+
+    @Test
+    public void testContains_ConcavePolygon() {
+        // L-shaped polygon, the point sits in the missing corner
+        List<GeoPoint> lShape = List.of(
+                new GeoPoint(0, 0),
+                new GeoPoint(0, 2),
+                new GeoPoint(1, 2),
+                new GeoPoint(1, 1),
+                new GeoPoint(2, 1),
+                new GeoPoint(2, 0)
+        );
+        assertFalse(PolygonUtil.contains(lShape, 1.5, 1.5));
+        assertTrue(PolygonUtil.contains(lShape, 0.5, 1.5));
+    }
+}